@@ -0,0 +1,192 @@
+package org.egov.pt.calculator.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.egov.pt.calculator.model.ArvRateFactors;
+import org.egov.pt.calculator.model.LocalityRateTable;
+import org.egov.pt.calculator.model.MasterSnapshot;
+import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.util.CalculatorUtils;
+import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.web.models.Calculation;
+import org.egov.pt.calculator.web.models.TaxHeadEstimate;
+import org.egov.pt.calculator.web.models.collections.Payment;
+import org.egov.pt.calculator.web.models.demand.Demand;
+import org.egov.pt.calculator.web.models.demand.DemandDetail;
+import org.egov.pt.calculator.web.models.demand.TaxPeriod;
+import org.egov.pt.calculator.web.models.property.Property;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+
+import net.minidev.json.JSONArray;
+
+/**
+ * Synthetic properties and recorded mdms responses shared by the benchmarks
+ *
+ * The services are wired by hand with the same collaborators Spring would inject, the
+ * configurations carry the rates of the production deployment
+ */
+final class BenchmarkFixtures {
+
+	static final String TENANT_ID = "up.moradabad";
+
+	static final String ASSESSMENT_YEAR = "2019-20";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	private BenchmarkFixtures() {
+	}
+
+	static Configurations configurations() {
+
+		Configurations configs = new Configurations();
+		ReflectionTestUtils.setField(configs, "taxRateMultiplier", new BigDecimal("0.10"));
+		ReflectionTestUtils.setField(configs, "sewerageTaxMultiplier", new BigDecimal("0.025"));
+		ReflectionTestUtils.setField(configs, "waterTaxMultiplier", new BigDecimal("0.075"));
+		ReflectionTestUtils.setField(configs, "taxExemptionOwnedLessThan10", new BigDecimal("-25"));
+		ReflectionTestUtils.setField(configs, "taxExemptionOwnedBetween10and20", new BigDecimal("-32.5"));
+		ReflectionTestUtils.setField(configs, "taxExemptionOwnedGreaterThan20", new BigDecimal("-40"));
+		ReflectionTestUtils.setField(configs, "taxExemptionRentedLessThan10", new BigDecimal("25"));
+		ReflectionTestUtils.setField(configs, "taxExemptionRentedBetween10and20", new BigDecimal("12.5"));
+		ReflectionTestUtils.setField(configs, "taxExemptionRentedGreaterThan20", new BigDecimal("0"));
+		ReflectionTestUtils.setField(configs, "nonResidentialFacilitiesPresentRebate", 0);
+		ReflectionTestUtils.setField(configs, "nonResidentialFacilitiesNotPresentRebate", 10);
+		return configs;
+	}
+
+	static EstimationService estimationService(Configurations configs) {
+
+		EstimationService estimationService = new EstimationService();
+		ReflectionTestUtils.setField(estimationService, "configs", configs);
+		return estimationService;
+	}
+
+	static MasterDataService masterDataService() {
+		return new MasterDataService();
+	}
+
+	static PayService payService(MasterDataService masterDataService) {
+
+		PayService payService = new PayService();
+		ReflectionTestUtils.setField(payService, "utils", new CalculatorUtils());
+		ReflectionTestUtils.setField(payService, "mDService", masterDataService);
+		return payService;
+	}
+
+	static DemandService demandService() {
+		return new DemandService();
+	}
+
+	static List<Property> properties() {
+		return read("properties.json", new TypeReference<List<Property>>() {});
+	}
+
+	static LocalityRateTable localityRateTable() {
+
+		List<Map<String, Object>> boundaries = JsonPath.read(readJson("mdms-locality-rates.json"),
+				"$.MdmsRes.egov-location.TenantBoundary");
+		return LocalityRateTable.from(TENANT_ID, boundaries);
+	}
+
+	static Map<String, String> categoriesMap() {
+
+		List<Map<String, String>> categories = JsonPath.read(readJson("mdms-categories.json"),
+				"$.MdmsRes.PropertyTax.Categories");
+		return categories.stream().collect(Collectors.toMap(category -> category.get("code").toLowerCase(),
+				category -> category.get("ratemultiplier"), (oldval, newval) -> newval));
+	}
+
+	/**
+	 * Rate factors of the current year for the recorded categories, built the way the estimation does
+	 */
+	static ArvRateFactors arvRateFactors(EstimationService estimationService) {
+		return estimationService.getArvRateFactors(categoriesMap());
+	}
+
+	static MasterSnapshot masterSnapshot() {
+
+		Map<String, JSONArray> timeBasedExemptionMasters = new HashMap<>();
+		Object response = readJson("mdms-time-based-exemptions.json");
+		for (String masterName : new String[] { CalculatorConstants.REBATE_MASTER,
+				CalculatorConstants.PENANLTY_MASTER, CalculatorConstants.INTEREST_MASTER })
+			timeBasedExemptionMasters.put(masterName, JsonPath.read(response, "$.MdmsRes.PropertyTax." + masterName));
+
+		return new MasterSnapshot(TENANT_ID, Collections.singletonList(taxPeriod()), Collections.emptyList(),
+				Collections.emptyMap(), Collections.emptyMap(), timeBasedExemptionMasters);
+	}
+
+	static TaxPeriod taxPeriod() {
+		return MAPPER.convertValue(readTree("payments.json").get("taxPeriod"), TaxPeriod.class);
+	}
+
+	static List<Payment> payments() {
+		return MAPPER.convertValue(readTree("payments.json").get("payments"), new TypeReference<List<Payment>>() {});
+	}
+
+	/**
+	 * New calculation with the given number of tax heads and an old demand holding two
+	 * collected details for every tax head but the last, plus one tax head dropped from the new calculation
+	 */
+	static Calculation calculation(int taxHeads) {
+
+		List<TaxHeadEstimate> estimates = new ArrayList<>(taxHeads);
+		for (int i = 0; i < taxHeads; i++)
+			estimates.add(TaxHeadEstimate.builder().taxHeadCode(taxHeadCode(i))
+					.estimateAmount(new BigDecimal(1000 + 75 * i).setScale(2)).build());
+		return Calculation.builder().tenantId(TENANT_ID).taxHeadEstimates(estimates).build();
+	}
+
+	static Demand oldDemand(int taxHeads) {
+
+		List<DemandDetail> details = new LinkedList<>();
+		for (int i = 0; i < taxHeads; i++) {
+			if (i == taxHeads - 1)
+				continue;
+			details.add(DemandDetail.builder().taxHeadMasterCode(taxHeadCode(i)).tenantId(TENANT_ID)
+					.taxAmount(new BigDecimal(900 + 50 * i).setScale(2)).collectionAmount(new BigDecimal(400).setScale(2)).build());
+			details.add(DemandDetail.builder().taxHeadMasterCode(taxHeadCode(i)).tenantId(TENANT_ID)
+					.taxAmount(new BigDecimal(25 * i).setScale(2)).collectionAmount(BigDecimal.ZERO).build());
+		}
+		details.add(DemandDetail.builder().taxHeadMasterCode("PT_DROPPED").tenantId(TENANT_ID)
+				.taxAmount(new BigDecimal(300).setScale(2)).collectionAmount(new BigDecimal(300).setScale(2)).build());
+		return Demand.builder().tenantId(TENANT_ID).consumerCode("PT-MBD-0001").demandDetails(details).build();
+	}
+
+	private static String taxHeadCode(int index) {
+		return index == 0 ? CalculatorConstants.PT_TAX : "PT_TAX_HEAD_" + index;
+	}
+
+	private static <T> T read(String fixture, TypeReference<T> type) {
+		return MAPPER.convertValue(readTree(fixture), type);
+	}
+
+	private static Object readJson(String fixture) {
+		return MAPPER.convertValue(readTree(fixture), Object.class);
+	}
+
+	private static JsonNode readTree(String fixture) {
+		try (InputStream stream = BenchmarkFixtures.class.getResourceAsStream("/fixtures/" + fixture)) {
+			if (null == stream)
+				throw new IllegalStateException("Missing benchmark fixture " + fixture);
+			return MAPPER.readTree(stream);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unreadable benchmark fixture " + fixture, e);
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.egov.pt.calculator.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.egov.pt.calculator.web.models.Calculation;
+import org.egov.pt.calculator.web.models.demand.Demand;
+import org.egov.pt.calculator.web.models.demand.DemandDetail;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adjustment of the old demand details against a new calculation
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DemandServiceBenchmark {
+
+	@Param({ "4", "12" })
+	public int taxHeads;
+
+	private DemandService demandService;
+
+	private Calculation calculation;
+
+	private Demand oldDemand;
+
+	@Setup
+	public void setUp() {
+		demandService = BenchmarkFixtures.demandService();
+		calculation = BenchmarkFixtures.calculation(taxHeads);
+		oldDemand = BenchmarkFixtures.oldDemand(taxHeads);
+	}
+
+	@Benchmark
+	public List<DemandDetail> getAdjustedDemandDetails() {
+		return demandService.getAdjustedDemandDetails(BenchmarkFixtures.TENANT_ID, calculation, oldDemand);
+	}
+
+	@Benchmark
+	public List<DemandDetail> getAdjustedDemandDetailsWithoutOldDemand() {
+		return demandService.getAdjustedDemandDetails(BenchmarkFixtures.TENANT_ID, calculation, null);
+	}
+
+}
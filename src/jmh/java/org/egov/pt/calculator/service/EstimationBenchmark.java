@@ -0,0 +1,105 @@
+package org.egov.pt.calculator.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.egov.pt.calculator.model.ArvRateFactors;
+import org.egov.pt.calculator.model.LocalityRateTable;
+import org.egov.pt.calculator.model.PropertyPayment;
+import org.egov.pt.calculator.web.models.property.Property;
+import org.egov.pt.calculator.web.models.property.Unit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ARV rate factor lookups and payment computation over the synthetic residential, non residential,
+ * mixed and vacant properties
+ *
+ * Every invocation walks all the fixture properties, so one operation is one pass over the fixtures.
+ * The fixed point and BigDecimal payments are compared on every fixture property before the
+ * benchmarks run, the run fails when any tax differs. The benchmark profile runs with -prof gc so
+ * that the allocation rate of both engines is reported.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EstimationBenchmark {
+
+	private static final String RESIDENTIAL = "RESIDENTIAL";
+
+	private static final String NONRESIDENTIAL = "NONRESIDENTIAL";
+
+	private static final String RENTED = "Rented";
+
+	private EstimationService estimationService;
+
+	private List<Property> properties;
+
+	private LocalityRateTable localityRateTable;
+
+	private ArvRateFactors rateFactors;
+
+	@Setup
+	public void setUp() {
+		estimationService = BenchmarkFixtures.estimationService(BenchmarkFixtures.configurations());
+		properties = BenchmarkFixtures.properties();
+		localityRateTable = BenchmarkFixtures.localityRateTable();
+		rateFactors = BenchmarkFixtures.arvRateFactors(estimationService);
+
+		for (Property property : properties) {
+			PropertyPayment expected = estimationService.calculatePropertyPayment(property, localityRateTable, rateFactors);
+			PropertyPayment actual = estimationService.calculatePropertyPaymentFixedPoint(property, localityRateTable, rateFactors);
+			if (expected.getHouseTax().compareTo(actual.getHouseTax()) != 0
+					|| expected.getWaterTax().compareTo(actual.getWaterTax()) != 0
+					|| expected.getSewerTax().compareTo(actual.getSewerTax()) != 0)
+				throw new IllegalStateException("Fixed point payment of property " + property.getPropertyId() + " is "
+						+ actual.getHouseTax() + "/" + actual.getWaterTax() + "/" + actual.getSewerTax() + " instead of "
+						+ expected.getHouseTax() + "/" + expected.getWaterTax() + "/" + expected.getSewerTax());
+		}
+	}
+
+	@Benchmark
+	public void getResidentialFactor(Blackhole blackhole) {
+		for (Property property : properties) {
+			int constructionYear = Integer.parseInt(property.getPropertyDetails().get(0).getConstructionYear());
+			for (Unit unit : property.getPropertyDetails().get(0).getUnits())
+				if (RESIDENTIAL.equalsIgnoreCase(unit.getUsageCategoryMajor()))
+					blackhole.consume(rateFactors.getResidentialFactor(constructionYear,
+							RENTED.equalsIgnoreCase(unit.getOccupancyType())));
+		}
+	}
+
+	@Benchmark
+	public void getMultiFactor(Blackhole blackhole) {
+		for (Property property : properties) {
+			for (Unit unit : property.getPropertyDetails().get(0).getUnits())
+				if (NONRESIDENTIAL.equalsIgnoreCase(unit.getUsageCategoryMajor()))
+					blackhole.consume(rateFactors.getMultiFactor(unit.getCategory()));
+		}
+	}
+
+	@Benchmark
+	public void calculatePropertyPayment(Blackhole blackhole) {
+		for (Property property : properties)
+			blackhole.consume(estimationService.calculatePropertyPayment(property, localityRateTable, rateFactors));
+	}
+
+	@Benchmark
+	public void calculatePropertyPaymentFixedPoint(Blackhole blackhole) {
+		for (Property property : properties)
+			blackhole.consume(estimationService.calculatePropertyPaymentFixedPoint(property, localityRateTable, rateFactors));
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.egov.pt.calculator.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.egov.pt.calculator.model.MasterSnapshot;
+import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.web.models.collections.Payment;
+import org.egov.pt.calculator.web.models.demand.TaxPeriod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rebate, penalty and interest computation against the recorded time based exemption masters
+ *
+ * The rebate master of the fixtures is not applicable to the assessment year so that
+ * penalty and interest are always computed
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayServiceBenchmark {
+
+	private static final BigDecimal TAX_AMOUNT = new BigDecimal("5400.00");
+
+	private PayService payService;
+
+	private MasterDataService masterDataService;
+
+	private MasterSnapshot masterSnapshot;
+
+	private TaxPeriod taxPeriod;
+
+	private List<Payment> payments;
+
+	private Map<String, Object> interestMaster;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		masterDataService = BenchmarkFixtures.masterDataService();
+		payService = BenchmarkFixtures.payService(masterDataService);
+		masterSnapshot = BenchmarkFixtures.masterSnapshot();
+		taxPeriod = BenchmarkFixtures.taxPeriod();
+		payments = BenchmarkFixtures.payments();
+		interestMaster = (Map<String, Object>) masterSnapshot
+				.getTimeBasedExemptionMaster(CalculatorConstants.INTEREST_MASTER).get(0);
+	}
+
+	@Benchmark
+	public Map<String, BigDecimal> applyPenaltyRebateAndInterestWithoutPayments() {
+		return payService.applyPenaltyRebateAndInterest(TAX_AMOUNT, BigDecimal.ZERO, BenchmarkFixtures.ASSESSMENT_YEAR,
+				masterSnapshot, Collections.emptyList(), taxPeriod);
+	}
+
+	@Benchmark
+	public Map<String, BigDecimal> applyPenaltyRebateAndInterestWithPayments() {
+		return payService.applyPenaltyRebateAndInterest(TAX_AMOUNT, BigDecimal.ZERO, BenchmarkFixtures.ASSESSMENT_YEAR,
+				masterSnapshot, payments, taxPeriod);
+	}
+
+	@Benchmark
+	public BigDecimal calculateApplicables() {
+		return masterDataService.calculateApplicables(TAX_AMOUNT, interestMaster);
+	}
+
+}
@@ -0,0 +1,216 @@
+package org.egov.pt.calculator.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Replays recorded calculation, assessment and bill requests against a running calculator and
+ * reports the throughput and latency percentiles of every endpoint
+ *
+ * Every request gets its own property id, {{seq}} in the payloads is replaced with a running number.
+ * Requests sent during the warm up are not counted.
+ *
+ * Configured through system properties
+ * <ul>
+ * <li>load.target, default http://localhost:8281/pt-calculator-v2</li>
+ * <li>load.endpoints, comma separated from estimate, estimateV2, calculate and getbill, default all</li>
+ * <li>load.threads, default 16</li>
+ * <li>load.warmup.seconds, default 10</li>
+ * <li>load.duration.seconds, default 60</li>
+ * <li>load.tenantId, default up.moradabad</li>
+ * </ul>
+ */
+public class LoadDriver {
+
+	private static final Map<String, Endpoint> ENDPOINTS = new LinkedHashMap<>();
+
+	static {
+		ENDPOINTS.put("estimate", new Endpoint("/propertytax/_estimate", "calculation-req.json", false));
+		ENDPOINTS.put("estimateV2", new Endpoint("/propertytax/v2/_estimate", "assessment-req-v2.json", false));
+		ENDPOINTS.put("calculate", new Endpoint("/propertytax/_calculate", "calculation-req.json", false));
+		ENDPOINTS.put("getbill", new Endpoint("/propertytax/_getbill", "getbill-req.json", true));
+	}
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	public static void main(String[] args) throws Exception {
+
+		String target = System.getProperty("load.target", "http://localhost:8281/pt-calculator-v2");
+		List<String> names = Arrays.stream(System.getProperty("load.endpoints", String.join(",", ENDPOINTS.keySet()))
+				.split(",")).map(String::trim).filter(name -> !name.isEmpty()).collect(Collectors.toList());
+		for (String name : names)
+			if (!ENDPOINTS.containsKey(name))
+				throw new IllegalArgumentException("Unknown endpoint " + name + ", expected one of " + ENDPOINTS.keySet());
+
+		new LoadDriver().run(target, names, Integer.getInteger("load.threads", 16),
+				Long.getLong("load.warmup.seconds", 10L), Long.getLong("load.duration.seconds", 60L),
+				System.getProperty("load.tenantId", "up.moradabad"));
+	}
+
+	void run(String target, List<String> names, int threads, long warmupSeconds, long durationSeconds, String tenantId)
+			throws Exception {
+
+		Map<String, String> payloads = new HashMap<>();
+		for (String name : names)
+			payloads.put(name, readPayload(ENDPOINTS.get(name).payload));
+
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+		long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+		System.out.printf("Driving %s against %s with %d threads, %d s warm up and %d s measurement%n", names, target,
+				threads, warmupSeconds, durationSeconds);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Map<String, Stats>>> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			int offset = i;
+			workers.add(executor.submit(() -> drive(target, names, payloads, tenantId, offset, measureFrom, measureTo)));
+		}
+		executor.shutdown();
+
+		Map<String, Stats> total = new LinkedHashMap<>();
+		names.forEach(name -> total.put(name, new Stats()));
+		for (Future<Map<String, Stats>> worker : workers)
+			worker.get().forEach((name, stats) -> total.get(name).add(stats));
+
+		report(total, durationSeconds);
+	}
+
+	private Map<String, Stats> drive(String target, List<String> names, Map<String, String> payloads, String tenantId,
+			int offset, long measureFrom, long measureTo) {
+
+		Map<String, Stats> stats = new HashMap<>();
+		names.forEach(name -> stats.put(name, new Stats()));
+
+		for (int i = offset; System.nanoTime() < measureTo; i++) {
+
+			String name = names.get(i % names.size());
+			Endpoint endpoint = ENDPOINTS.get(name);
+			long seq = sequence.incrementAndGet();
+			String body = payloads.get(name).replace("{{seq}}", String.valueOf(seq)).replace("{{tenantId}}", tenantId);
+			String url = target + endpoint.path;
+			if (endpoint.billQuery)
+				url += "?tenantId=" + tenantId + "&consumerCodes=PT-LT-" + seq;
+
+			long begin = System.nanoTime();
+			boolean ok = post(url, body);
+			long end = System.nanoTime();
+
+			if (begin >= measureFrom && end <= measureTo)
+				stats.get(name).record(end - begin, ok);
+		}
+		return stats;
+	}
+
+	private boolean post(String url, String body) {
+
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(url).openConnection();
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setConnectTimeout(5000);
+			connection.setReadTimeout(60000);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+			int status = connection.getResponseCode();
+			InputStream response = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			if (null != response)
+				try (InputStream in = response) {
+					StubServer.readAll(in);
+				}
+			return status < 400;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (null != connection)
+				connection.disconnect();
+		}
+	}
+
+	private void report(Map<String, Stats> total, long durationSeconds) {
+
+		System.out.printf("%n%-12s %9s %8s %10s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s",
+				"p50 ms", "p90 ms", "p99 ms", "max ms");
+		total.forEach((name, stats) -> {
+			long[] latencies = stats.sortedLatencies();
+			System.out.printf("%-12s %9d %8d %10.1f %9.1f %9.1f %9.1f %9.1f%n", name, latencies.length, stats.errors,
+					latencies.length / (double) durationSeconds, percentile(latencies, 50), percentile(latencies, 90),
+					percentile(latencies, 99), percentile(latencies, 100));
+		});
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0)
+			return 0;
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+	}
+
+	private static String readPayload(String name) throws IOException {
+		try (InputStream stream = LoadDriver.class.getResourceAsStream("/payloads/" + name)) {
+			if (null == stream)
+				throw new IllegalStateException("Missing payload " + name);
+			return new String(StubServer.readAll(stream), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static class Endpoint {
+
+		private final String path;
+
+		private final String payload;
+
+		private final boolean billQuery;
+
+		private Endpoint(String path, String payload, boolean billQuery) {
+			this.path = path;
+			this.payload = payload;
+			this.billQuery = billQuery;
+		}
+	}
+
+	private static class Stats {
+
+		private List<Long> latencies = new ArrayList<>();
+
+		private long errors;
+
+		private void record(long latencyNanos, boolean ok) {
+			latencies.add(latencyNanos);
+			if (!ok)
+				errors++;
+		}
+
+		private void add(Stats other) {
+			latencies.addAll(other.latencies);
+			errors += other.errors;
+		}
+
+		private long[] sortedLatencies() {
+			List<Long> sorted = new ArrayList<>(latencies);
+			Collections.sort(sorted);
+			return sorted.stream().mapToLong(Long::longValue).toArray();
+		}
+	}
+
+}
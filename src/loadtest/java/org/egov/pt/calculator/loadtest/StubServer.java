@@ -0,0 +1,177 @@
+package org.egov.pt.calculator.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for mdms, billing-service, collection-services and property-services
+ *
+ * Serves the recorded responses under /stubs after a configurable latency and fails a configurable
+ * share of the calls, demand create and update echo the posted demands back.
+ *
+ * Configured through system properties, every latency and error setting can be overridden per
+ * service with stub.&lt;mdms|billing|collection|property&gt;.&lt;setting&gt;
+ * <ul>
+ * <li>stub.port, default 8089</li>
+ * <li>stub.threads, default 64</li>
+ * <li>stub.latency.millis, default 20</li>
+ * <li>stub.jitter.millis, default 10</li>
+ * <li>stub.error.rate between 0 and 1, default 0</li>
+ * <li>stub.error.status, default 503</li>
+ * </ul>
+ */
+public class StubServer {
+
+	private static final String DEMAND_ECHO = "echo";
+
+	private final Map<String, Route> routes = new LinkedHashMap<>();
+
+	private final AtomicLong served = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	public static void main(String[] args) throws IOException {
+		new StubServer().start(Integer.getInteger("stub.port", 8089), Integer.getInteger("stub.threads", 64));
+	}
+
+	StubServer() {
+		route("mdms", "/egov-mdms-service/v1/_search", "mdms-search.json");
+		route("billing", "/billing-service/taxperiods/_search", "taxperiods-search.json");
+		route("billing", "/billing-service/taxheads/_search", "taxheads-search.json");
+		route("billing", "/billing-service/demand/_search", "demand-search.json");
+		route("billing", "/billing-service/demand/_create", DEMAND_ECHO);
+		route("billing", "/billing-service/demand/_update", DEMAND_ECHO);
+		route("billing", "/billing-service/bill/_generate", "bill-generate.json");
+		route("collection", "/collection-services/payments/_search", "payments-search.json");
+		route("property", "/property-services/property/_search", "property-search.json");
+	}
+
+	void start(int port, int threads) throws IOException {
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 512);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		routes.forEach((path, route) -> server.createContext(path, exchange -> serve(route, exchange)));
+		server.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(0);
+			executor.shutdownNow();
+			System.out.printf("Stub server served %d calls, %d failed%n", served.get(), failed.get());
+		}));
+		System.out.printf("Stub server listening on %d with %d threads%n", port, threads);
+		routes.forEach((path, route) -> System.out.printf("  %-45s latency %d+-%d ms, error rate %.3f%n", path,
+				route.latencyMillis, route.jitterMillis, route.errorRate));
+	}
+
+	private void route(String service, String path, String response) {
+
+		long latencyMillis = Long.getLong("stub." + service + ".latency.millis", Long.getLong("stub.latency.millis", 20L));
+		long jitterMillis = Long.getLong("stub." + service + ".jitter.millis", Long.getLong("stub.jitter.millis", 10L));
+		double errorRate = Double.parseDouble(System.getProperty("stub." + service + ".error.rate",
+				System.getProperty("stub.error.rate", "0")));
+		int errorStatus = Integer.getInteger("stub." + service + ".error.status", Integer.getInteger("stub.error.status", 503));
+
+		byte[] body = DEMAND_ECHO.equals(response) ? null : readStub(response);
+		routes.put(path, new Route(body, latencyMillis, jitterMillis, errorRate, errorStatus));
+	}
+
+	private void serve(Route route, HttpExchange exchange) throws IOException {
+
+		try {
+			byte[] request = readAll(exchange.getRequestBody());
+			sleep(route);
+
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			if (route.errorRate > 0 && random.nextDouble() < route.errorRate) {
+				failed.incrementAndGet();
+				respond(exchange, route.errorStatus,
+						"{\"Errors\":[{\"code\":\"STUB_INJECTED_ERROR\",\"message\":\"Injected by the stub server\"}]}"
+								.getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+
+			served.incrementAndGet();
+			respond(exchange, 200, null == route.body ? request : route.body);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void sleep(Route route) {
+
+		long delay = route.latencyMillis;
+		if (route.jitterMillis > 0)
+			delay += ThreadLocalRandom.current().nextLong(-route.jitterMillis, route.jitterMillis + 1);
+		if (delay <= 0)
+			return;
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private static byte[] readStub(String name) {
+		try (InputStream stream = StubServer.class.getResourceAsStream("/stubs/" + name)) {
+			if (null == stream)
+				throw new IllegalStateException("Missing stub response " + name);
+			return readAll(stream);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unreadable stub response " + name, e);
+		}
+	}
+
+	static byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = stream.read(buffer)) != -1)
+			out.write(buffer, 0, read);
+		return out.toByteArray();
+	}
+
+	private static class Route {
+
+		private final byte[] body;
+
+		private final long latencyMillis;
+
+		private final long jitterMillis;
+
+		private final double errorRate;
+
+		private final int errorStatus;
+
+		private Route(byte[] body, long latencyMillis, long jitterMillis, double errorRate, int errorStatus) {
+			this.body = body;
+			this.latencyMillis = latencyMillis;
+			this.jitterMillis = jitterMillis;
+			this.errorRate = errorRate;
+			this.errorStatus = errorStatus;
+		}
+	}
+
+}
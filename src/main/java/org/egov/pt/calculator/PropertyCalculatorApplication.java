@@ -1,20 +1,36 @@
 package org.egov.pt.calculator;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.egov.pt.calculator.util.Configurations;
 import org.egov.tracer.config.TracerConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.CATEGORIES_CACHE;
+import static org.egov.pt.calculator.util.CalculatorConstants.LOCALITY_RATES_CACHE;
+import static org.egov.pt.calculator.util.CalculatorConstants.TAX_RESULTS_CACHE;
 
 @SpringBootApplication
 @Import({ TracerConfiguration.class })
 @EnableCaching
+@EnableScheduling
 public class PropertyCalculatorApplication {
 
 	public static void main(String[] args) {
@@ -36,4 +52,34 @@ public class PropertyCalculatorApplication {
 		mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
 		return mapper;
 	}
+
+	/**
+	 * Bounded master caches with their own ttl, statistics are exposed through the cache endpoint
+	 */
+	@Bean
+	public CacheManager cacheManager(Configurations configs) {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(Arrays.asList(
+				buildCache(LOCALITY_RATES_CACHE, configs.getLocalityCacheTtlMinutes(), configs.getCacheMaxEntries()),
+				buildCache(CATEGORIES_CACHE, configs.getCategoryCacheTtlMinutes(), configs.getCacheMaxEntries()),
+				buildCache(TAX_RESULTS_CACHE, configs.getTaxResultsCacheTtlMinutes(), configs.getTaxResultsCacheMaxEntries())));
+		return cacheManager;
+	}
+
+	/**
+	 * Listener container factory delivering a whole poll to the listener, used by the batch calculation consumer
+	 */
+	@Bean
+	public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+			ConsumerFactory<Object, Object> consumerFactory) {
+		ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+		factory.setConsumerFactory(consumerFactory);
+		factory.setBatchListener(true);
+		return factory;
+	}
+
+	private CaffeineCache buildCache(String name, Long ttlMinutes, Long maxEntries) {
+		return new CaffeineCache(name, Caffeine.newBuilder().expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+				.maximumSize(maxEntries).recordStats().build());
+	}
 }
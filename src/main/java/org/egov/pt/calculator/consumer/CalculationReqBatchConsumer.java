@@ -0,0 +1,164 @@
+package org.egov.pt.calculator.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.egov.common.contract.request.RequestInfo;
+import org.egov.pt.calculator.producer.Producer;
+import org.egov.pt.calculator.service.DemandService;
+import org.egov.pt.calculator.util.CalculatorMetrics;
+import org.egov.pt.calculator.util.CalculatorUtils;
+import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.web.models.property.Property;
+import org.egov.pt.calculator.web.models.property.PropertyRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the demands of the saved and updated properties a poll at a time
+ *
+ * The properties of all the records of a poll are grouped by tenant and requesting user and
+ * calculated as one request per group. When a group fails its records are retried one at a time
+ * and the records which still fail are pushed to the dead letter topic.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "pt.calculation.consumer.batch.enabled", havingValue = "true")
+public class CalculationReqBatchConsumer {
+
+    @Autowired
+    private DemandService demandService;
+
+    @Autowired
+    private CalculatorUtils utils;
+
+    @Autowired
+    private Configurations config;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private Producer producer;
+
+    @Autowired
+    private CalculatorMetrics metrics;
+
+    @KafkaListener(topics = {"${kafka.save.property.topic}", "${kafka.update.property.topic}"},
+            containerFactory = "batchKafkaListenerContainerFactory",
+            concurrency = "${pt.calculation.consumer.concurrency:4}",
+            properties = {"max.poll.records=${pt.calculation.consumer.max.poll.records:200}"})
+    public void listen(final List<ConsumerRecord<String, HashMap<String, Object>>> records) {
+
+        Timer.Sample sample = metrics.start();
+        Map<String, RecordGroup> groups = new LinkedHashMap<>();
+
+        for (ConsumerRecord<String, HashMap<String, Object>> record : records) {
+            try {
+                PropertyRequest propertyRequest = mapper.convertValue(record.value(), PropertyRequest.class);
+                List<Property> propertiesForDemandGen = getPropertiesForDemandGen(propertyRequest);
+                if (CollectionUtils.isEmpty(propertiesForDemandGen)) {
+                    metrics.countConsumerRecords(CalculatorMetrics.CONSUMER_RECORDS_IGNORED, 1);
+                    continue;
+                }
+
+                RecordGroup group = groups.computeIfAbsent(getGroupKey(propertyRequest),
+                        key -> new RecordGroup(propertyRequest.getRequestInfo()));
+                group.records.add(record);
+                group.properties.addAll(propertiesForDemandGen);
+            } catch (final Exception e) {
+                sendToDeadLetter(record, e);
+            }
+        }
+
+        groups.values().forEach(this::generateDemands);
+        metrics.stop(sample, CalculatorMetrics.STAGE_CONSUMER_POLL, null);
+    }
+
+    private void generateDemands(RecordGroup group) {
+
+        long startTime = System.currentTimeMillis();
+        try {
+            PropertyRequest propertyRequest = PropertyRequest.builder().requestInfo(group.requestInfo)
+                    .properties(group.properties).build();
+            demandService.generateDemands(utils.createCalculationReq(propertyRequest));
+            metrics.countConsumerRecords(CalculatorMetrics.CONSUMER_RECORDS_PROCESSED, group.records.size());
+            log.info("Generated demands of {} properties from {} records in {} ms", group.properties.size(),
+                    group.records.size(), System.currentTimeMillis() - startTime);
+        } catch (final Exception e) {
+            log.error("Demand generation failed for a group of " + group.records.size()
+                    + " records, retrying them one at a time: " + e);
+            if (group.records.size() == 1)
+                sendToDeadLetter(group.records.get(0), e);
+            else
+                group.records.forEach(this::generateDemands);
+        }
+    }
+
+    private void generateDemands(ConsumerRecord<String, HashMap<String, Object>> record) {
+        try {
+            PropertyRequest propertyRequest = mapper.convertValue(record.value(), PropertyRequest.class);
+            propertyRequest.setProperties(getPropertiesForDemandGen(propertyRequest));
+            demandService.generateDemands(utils.createCalculationReq(propertyRequest));
+            metrics.countConsumerRecords(CalculatorMetrics.CONSUMER_RECORDS_PROCESSED, 1);
+        } catch (final Exception e) {
+            sendToDeadLetter(record, e);
+        }
+    }
+
+    private List<Property> getPropertiesForDemandGen(PropertyRequest propertyRequest) {
+
+        List<Property> propertiesForDemandGen = new LinkedList<>();
+        propertyRequest.getProperties().forEach(property -> {
+            if (!config.getSourcesToBeIgnored().contains(property.getPropertyDetails().get(0).getSource()))
+                propertiesForDemandGen.add(property);
+        });
+        return propertiesForDemandGen;
+    }
+
+    private String getGroupKey(PropertyRequest propertyRequest) {
+
+        RequestInfo requestInfo = propertyRequest.getRequestInfo();
+        String userUuid = null == requestInfo || null == requestInfo.getUserInfo() ? null
+                : requestInfo.getUserInfo().getUuid();
+        return propertyRequest.getProperties().get(0).getTenantId() + "|" + userUuid;
+    }
+
+    private void sendToDeadLetter(ConsumerRecord<String, HashMap<String, Object>> record, Exception e) {
+
+        log.error("Error while listening to value: " + record.value() + " on topic: " + record.topic() + ": " + e);
+
+        Map<String, Object> failedRecord = new LinkedHashMap<>();
+        failedRecord.put("topic", record.topic());
+        failedRecord.put("partition", record.partition());
+        failedRecord.put("offset", record.offset());
+        failedRecord.put("error", String.valueOf(e.getMessage()));
+        failedRecord.put("value", record.value());
+        producer.push(config.getCalculationDeadLetterTopic(), failedRecord);
+        metrics.countConsumerRecords(CalculatorMetrics.CONSUMER_RECORDS_DEAD_LETTERED, 1);
+    }
+
+    private static class RecordGroup {
+
+        private final RequestInfo requestInfo;
+
+        private final List<ConsumerRecord<String, HashMap<String, Object>>> records = new LinkedList<>();
+
+        private final List<Property> properties = new LinkedList<>();
+
+        private RecordGroup(RequestInfo requestInfo) {
+            this.requestInfo = requestInfo;
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+package org.egov.pt.calculator.model;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.tracer.model.CustomException;
+
+import lombok.Getter;
+
+/**
+ * Immutable lookup of the applicable entry of a time based master (rebate, penalty, interest)
+ * compiled once when the masters are loaded
+ *
+ * The from years and starting days of the entries are parsed once. Entries with a starting day
+ * are indexed by from year and, within every from year, by starting time so that a lookup is two
+ * binary searches. Entries without a starting day are indexed by from year only. A master mixing
+ * both kinds or holding an unparsable entry is scanned as before on every lookup.
+ */
+public class ApplicableSchedule {
+
+	private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+	private static final String INVALID_START_DAY = "INVALID STARTDAY";
+
+	private static final String INVALID_START_DAY_MSG = "The startDate of the penalty cannot be parsed";
+
+	private final List<Object> masterList;
+
+	/** distinct from years in ascending order, null when the master is scanned */
+	private final int[] fromYears;
+
+	/** entries with a starting day and a from year up to fromYears[i], by starting time */
+	private final Entry[][] startedEntries;
+
+	private final long[][] startTimes;
+
+	/** first and last entry without a starting day of fromYears[i] */
+	private final Entry[] firstEntries;
+
+	private final Entry[] lastEntries;
+
+	private ApplicableSchedule(List<Object> masterList, int[] fromYears, Entry[][] startedEntries, long[][] startTimes,
+			Entry[] firstEntries, Entry[] lastEntries) {
+		this.masterList = masterList;
+		this.fromYears = fromYears;
+		this.startedEntries = startedEntries;
+		this.startTimes = startTimes;
+		this.firstEntries = firstEntries;
+		this.lastEntries = lastEntries;
+	}
+
+	/**
+	 * Compiles the entries of the master
+	 *
+	 * @param masterList entries of the master from mdms
+	 * @return schedule of the master
+	 */
+	@SuppressWarnings("unchecked")
+	public static ApplicableSchedule from(List<Object> masterList) {
+
+		if (null == masterList)
+			masterList = Collections.emptyList();
+
+		List<Entry> entries = new ArrayList<>(masterList.size());
+		try {
+			for (Object object : masterList)
+				entries.add(new Entry((Map<String, Object>) object));
+		} catch (RuntimeException e) {
+			return new ApplicableSchedule(masterList, null, null, null, null, null);
+		}
+
+		long started = entries.stream().filter(entry -> entry.hasStartingDay).count();
+		if (started != 0 && started != entries.size())
+			return new ApplicableSchedule(masterList, null, null, null, null, null);
+
+		// stable sort, entries of the same year keep their order in the master
+		List<Entry> byYear = new ArrayList<>(entries);
+		byYear.sort(Comparator.comparingInt(entry -> entry.fromYear));
+		int[] fromYears = byYear.stream().mapToInt(entry -> entry.fromYear).distinct().toArray();
+
+		if (started == 0) {
+			Map<Integer, Entry> first = new TreeMap<>();
+			Map<Integer, Entry> last = new TreeMap<>();
+			for (Entry entry : byYear) {
+				first.putIfAbsent(entry.fromYear, entry);
+				last.put(entry.fromYear, entry);
+			}
+			return new ApplicableSchedule(masterList, fromYears, null, null,
+					first.values().toArray(new Entry[0]), last.values().toArray(new Entry[0]));
+		}
+
+		Entry[][] startedEntries = new Entry[fromYears.length][];
+		long[][] startTimes = new long[fromYears.length][];
+		for (int i = 0; i < fromYears.length; i++) {
+			int fromYear = fromYears[i];
+			Entry[] applicable = byYear.stream().filter(entry -> entry.fromYear <= fromYear)
+					.sorted(Comparator.comparingLong(entry -> entry.startTime)).toArray(Entry[]::new);
+			startedEntries[i] = applicable;
+			startTimes[i] = Arrays.stream(applicable).mapToLong(entry -> entry.startTime).toArray();
+		}
+		return new ApplicableSchedule(masterList, fromYears, startedEntries, startTimes, null, null);
+	}
+
+	/**
+	 * Returns the entry applicable to the assessment year at the given time
+	 *
+	 * An entry without a starting day of the assessment year is applicable, else the one of the
+	 * latest earlier year. Of the entries with a starting day up to the assessment year the one
+	 * which started last before now is applicable.
+	 *
+	 * @param assessmentYear assessment year like 2019-20
+	 * @param now current epoch millis
+	 * @return the applicable entry, null if none applies
+	 */
+	public Entry getApplicable(String assessmentYear, long now) {
+
+		if (null == fromYears) {
+			Map<String, Object> master = scan(assessmentYear, masterList, now);
+			return null == master ? null : new Entry(master);
+		}
+
+		int year = Integer.parseInt(getStartYear(assessmentYear));
+		int index = Arrays.binarySearch(fromYears, year);
+
+		if (null != firstEntries) {
+			if (index >= 0)
+				return firstEntries[index];
+			int earlier = -index - 2;
+			return earlier < 0 ? null : lastEntries[earlier];
+		}
+
+		int upTo = index >= 0 ? index : -index - 2;
+		if (upTo < 0)
+			return null;
+		long[] times = startTimes[upTo];
+		// the last entry started before now, the first of them on equal starting times
+		int started = Arrays.binarySearch(times, now);
+		int last = started >= 0 ? started - 1 : -started - 2;
+		while (last >= 0 && times[last] == now)
+			last--;
+		if (last < 0 || times[last] <= 0)
+			return null;
+		while (last > 0 && times[last - 1] == times[last])
+			last--;
+		return startedEntries[upTo][last];
+	}
+
+	/**
+	 * Filters the master entries by their from year and starting day on every call
+	 *
+	 * If an entry is found with a from year same as the assessment year that entry is returned,
+	 * else the entry with the latest from year lesser than the assessment year. Entries with a
+	 * starting day are returned only once they started.
+	 *
+	 * @param assessmentYear assessment year like 2019-20
+	 * @param masterList entries of the master
+	 * @param now current epoch millis
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> scan(String assessmentYear, List<Object> masterList, long now) {
+
+		Map<String, Object> objToBeReturned = null;
+		String maxYearFromTheList = "0";
+		Long maxStartTime = 0l;
+		String assessmentStartYear = getStartYear(assessmentYear);
+
+		for (Object object : masterList) {
+
+			Map<String, Object> objMap = (Map<String, Object>) object;
+			String objFinYear = getStartYear((String) objMap.get(CalculatorConstants.FROMFY_FIELD_NAME));
+			if(!objMap.containsKey(CalculatorConstants.STARTING_DATE_APPLICABLES)){
+				if (objFinYear.compareTo(assessmentStartYear) == 0)
+					return  objMap;
+
+				else if (assessmentStartYear.compareTo(objFinYear) > 0 && maxYearFromTheList.compareTo(objFinYear) <= 0) {
+					maxYearFromTheList = objFinYear;
+					objToBeReturned = objMap;
+				}
+			}
+			else{
+				String objStartDay = ((String) objMap.get(CalculatorConstants.STARTING_DATE_APPLICABLES));
+				if (assessmentStartYear.compareTo(objFinYear) >= 0 && maxYearFromTheList.compareTo(objFinYear) <= 0) {
+					maxYearFromTheList = objFinYear;
+					Long startTime = getStartDayInMillis(objStartDay);
+					if(startTime < now && maxStartTime < startTime){
+						objToBeReturned = objMap;
+						maxStartTime = startTime;
+					}
+				}
+			}
+		}
+		return objToBeReturned;
+	}
+
+	private static String getStartYear(String financialYear) {
+		int separator = financialYear.indexOf('-');
+		return separator < 0 ? financialYear : financialYear.substring(0, separator);
+	}
+
+	/**
+	 * Converts startDay to epoch in the default time zone
+	 * @param startDay StartDay of applicable
+	 */
+	private static long getStartDayInMillis(String startDay) {
+		try {
+			return new SimpleDateFormat("dd/MM/yyyy").parse(startDay).getTime();
+		} catch (ParseException e) {
+			throw new CustomException(INVALID_START_DAY, INVALID_START_DAY_MSG);
+		}
+	}
+
+	/**
+	 * An entry of the master with its from year and starting day parsed
+	 */
+	@Getter
+	public static class Entry {
+
+		private final Map<String, Object> master;
+
+		private final int fromYear;
+
+		private final boolean hasStartingDay;
+
+		/** starting day in the default time zone, used to pick the entry */
+		private final long startTime;
+
+		private final int startDay;
+
+		private final int startMonth;
+
+		private final int startYear;
+
+		private Entry(Map<String, Object> master) {
+
+			this.master = master;
+			this.fromYear = Integer.parseInt(getStartYear((String) master.get(CalculatorConstants.FROMFY_FIELD_NAME)));
+			this.hasStartingDay = master.containsKey(CalculatorConstants.STARTING_DATE_APPLICABLES);
+			if (hasStartingDay) {
+				String startingDay = (String) master.get(CalculatorConstants.STARTING_DATE_APPLICABLES);
+				String[] time = startingDay.split("/");
+				this.startTime = getStartDayInMillis(startingDay);
+				this.startDay = Integer.parseInt(time[0]);
+				this.startMonth = Integer.parseInt(time[1]);
+				this.startYear = Integer.parseInt(time[2]);
+			} else {
+				this.startTime = 0L;
+				this.startDay = 0;
+				this.startMonth = 0;
+				this.startYear = 0;
+			}
+		}
+
+		public boolean hasStartingDay() {
+			return hasStartingDay;
+		}
+
+		/**
+		 * Returns the start of the starting day in IST
+		 */
+		public long getStartMillis() {
+			return getStartMillis(startYear);
+		}
+
+		/**
+		 * Returns the start of the starting day in IST moved by as many years as the assessment
+		 * year is after the from year of the entry
+		 *
+		 * eg: for the assessment year 2017-18, fromFY 2015-16 and startingDay 01/04/2016 the
+		 * start is 01/04/2018
+		 *
+		 * @param assessmentYear assessment year like 2017-18
+		 */
+		public long getStartMillis(String assessmentYear) {
+			return getStartMillis(startYear + Integer.parseInt(getStartYear(assessmentYear)) - fromYear);
+		}
+
+		private long getStartMillis(int year) {
+			if (!hasStartingDay)
+				throw new CustomException(INVALID_START_DAY, INVALID_START_DAY_MSG);
+			// days past the end of the month roll over like a lenient calendar
+			return LocalDate.of(year, startMonth, 1).plusDays(startDay - 1L).atStartOfDay(IST).toInstant().toEpochMilli();
+		}
+	}
+
+}
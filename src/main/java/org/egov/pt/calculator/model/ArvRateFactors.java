@@ -0,0 +1,196 @@
+package org.egov.pt.calculator.model;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.egov.pt.calculator.util.CalculatorUtils;
+import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.util.FixedPointMoney.Factor;
+import org.egov.tracer.model.CustomException;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.EG_PT_INVALID_CATEGORY_MULTIPLIER;
+import static org.egov.pt.calculator.util.CalculatorConstants.EG_PT_INVALID_CATEGORY_MULTIPLIER_MSG;
+
+/**
+ * Immutable ARV rate factors of one assessment year built once from the
+ * configured exemptions and the category multipliers
+ *
+ * age band x occupancy -> residential factor
+ * facilities rebate -> non residential factor
+ * category -> multi factor
+ *
+ * Every factor already carries the division by hundred and the monthly to
+ * yearly conversion, the ARV of a unit is its base rate times its area
+ * times the factors. BigDecimal multiplication is exact so the ARV is the
+ * same as applying each percentage to the unit one after the other.
+ * Every factor, multiplier and tax rate is also converted once to the
+ * unscaled value and scale used by the fixed point engine.
+ */
+@Slf4j
+@Getter
+public class ArvRateFactors {
+
+	public static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+	public static final BigDecimal MONTHS_IN_YEAR = BigDecimal.valueOf(12);
+
+	public static final BigDecimal RESIDENTIAL_ARV_SHARE = new BigDecimal("0.8");
+
+	private final int year;
+
+	private final Map<String, String> categoriesMap;
+
+	private final Factor ownedLessThan10;
+
+	private final Factor ownedBetween10and20;
+
+	private final Factor ownedGreaterThan20;
+
+	private final Factor rentedLessThan10;
+
+	private final Factor rentedBetween10and20;
+
+	private final Factor rentedGreaterThan20;
+
+	private final int facilitiesPresentRebate;
+
+	private final int facilitiesNotPresentRebate;
+
+	private final Factor facilitiesPresentFactor;
+
+	private final Factor facilitiesNotPresentFactor;
+
+	private final Factor noRebateFactor;
+
+	/** lower case category -> multiplier, null for an unparsable multiplier */
+	private final Map<String, Factor> multiFactors;
+
+	private final Factor taxRate;
+
+	private final Factor waterTaxRate;
+
+	private final Factor sewerageTaxRate;
+
+	/** fingerprint of the year, the factors, the multipliers and the tax rates */
+	private final String fingerprint;
+
+	private ArvRateFactors(int year, Map<String, String> categoriesMap, Configurations configs,
+			Map<String, Factor> multiFactors) {
+
+		this.year = year;
+		this.categoriesMap = categoriesMap;
+		this.ownedLessThan10 = residentialFactor(configs.getTaxExemptionOwnedLessThan10());
+		this.ownedBetween10and20 = residentialFactor(configs.getTaxExemptionOwnedBetween10and20());
+		this.ownedGreaterThan20 = residentialFactor(configs.getTaxExemptionOwnedGreaterThan20());
+		this.rentedLessThan10 = residentialFactor(configs.getTaxExemptionRentedLessThan10());
+		this.rentedBetween10and20 = residentialFactor(configs.getTaxExemptionRentedBetween10and20());
+		this.rentedGreaterThan20 = residentialFactor(configs.getTaxExemptionRentedGreaterThan20());
+		this.facilitiesPresentRebate = configs.getNonResidentialFacilitiesPresentRebate();
+		this.facilitiesNotPresentRebate = configs.getNonResidentialFacilitiesNotPresentRebate();
+		this.facilitiesPresentFactor = nonResidentialFactor(facilitiesPresentRebate);
+		this.facilitiesNotPresentFactor = nonResidentialFactor(facilitiesNotPresentRebate);
+		this.noRebateFactor = nonResidentialFactor(0);
+		this.multiFactors = multiFactors;
+		this.taxRate = new Factor(configs.getTaxRateMultiplier());
+		this.waterTaxRate = new Factor(configs.getWaterTaxMultiplier());
+		this.sewerageTaxRate = new Factor(configs.getSewerageTaxMultiplier());
+		this.fingerprint = CalculatorUtils.fingerprint(new StringBuilder().append(year)
+				.append('|').append(ownedLessThan10).append('|').append(ownedBetween10and20).append('|').append(ownedGreaterThan20)
+				.append('|').append(rentedLessThan10).append('|').append(rentedBetween10and20).append('|').append(rentedGreaterThan20)
+				.append('|').append(facilitiesPresentRebate).append('|').append(facilitiesNotPresentRebate)
+				.append('|').append(configs.getTaxRateMultiplier()).append('|').append(configs.getWaterTaxMultiplier())
+				.append('|').append(configs.getSewerageTaxMultiplier()).append('|').append(new TreeMap<>(categoriesMap)));
+	}
+
+	/**
+	 * Builds the factors of the given year
+	 *
+	 * @param year current assessment year the construction age is measured against
+	 * @param categoriesMap category multipliers from mdms
+	 * @param configs configured exemptions and rebates
+	 * @return rate factors of the year
+	 */
+	public static ArvRateFactors from(int year, Map<String, String> categoriesMap, Configurations configs) {
+
+		Map<String, Factor> multiFactors = new HashMap<>();
+		categoriesMap.forEach((category, multiplier) -> {
+			try {
+				multiFactors.put(category, new Factor(new BigDecimal(multiplier.trim())));
+			} catch (RuntimeException e) {
+				log.warn("Invalid multiplier {} for category {}", multiplier, category);
+				multiFactors.put(category, null);
+			}
+		});
+		return new ArvRateFactors(year, categoriesMap, configs, Collections.unmodifiableMap(multiFactors));
+	}
+
+	/**
+	 * Tells whether the factors were built for the given year and categories
+	 */
+	public boolean isFor(int year, Map<String, String> categoriesMap) {
+		return this.year == year && this.categoriesMap == categoriesMap;
+	}
+
+	/**
+	 * Returns (100 + exemption) / 100 x 12 x 0.8 of the age band of the construction year
+	 *
+	 * @param constructionYear construction year of the property
+	 * @param rented whether the unit is rented
+	 */
+	public Factor getResidentialFactor(int constructionYear, boolean rented) {
+
+		int age = year - constructionYear;
+		if (age <= 10)
+			return rented ? rentedLessThan10 : ownedLessThan10;
+		if (age <= 20)
+			return rented ? rentedBetween10and20 : ownedBetween10and20;
+		return rented ? rentedGreaterThan20 : ownedGreaterThan20;
+	}
+
+	/**
+	 * Returns (100 + facilities rebate) / 100 x 12
+	 *
+	 * @param facilitiesRebate facilities rebate of the property
+	 */
+	public Factor getNonResidentialFactor(int facilitiesRebate) {
+
+		if (facilitiesRebate == 0)
+			return noRebateFactor;
+		if (facilitiesRebate == facilitiesPresentRebate)
+			return facilitiesPresentFactor;
+		if (facilitiesRebate == facilitiesNotPresentRebate)
+			return facilitiesNotPresentFactor;
+		return nonResidentialFactor(facilitiesRebate);
+	}
+
+	/**
+	 * Returns the multiplier of the category, zero if the category has none
+	 *
+	 * @param category category of the unit
+	 */
+	public Factor getMultiFactor(String category) {
+
+		String key = category.toLowerCase();
+		if (!multiFactors.containsKey(key))
+			return Factor.ZERO;
+		Factor multiFactor = multiFactors.get(key);
+		if (null == multiFactor)
+			throw new CustomException(EG_PT_INVALID_CATEGORY_MULTIPLIER, EG_PT_INVALID_CATEGORY_MULTIPLIER_MSG + category);
+		return multiFactor;
+	}
+
+	private static Factor residentialFactor(BigDecimal exemption) {
+		return new Factor(exemption.add(HUNDRED).divide(HUNDRED).multiply(MONTHS_IN_YEAR).multiply(RESIDENTIAL_ARV_SHARE));
+	}
+
+	private static Factor nonResidentialFactor(int facilitiesRebate) {
+		return new Factor(HUNDRED.add(BigDecimal.valueOf(facilitiesRebate)).divide(HUNDRED).multiply(MONTHS_IN_YEAR));
+	}
+
+}
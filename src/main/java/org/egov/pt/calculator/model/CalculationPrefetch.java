@@ -0,0 +1,28 @@
+package org.egov.pt.calculator.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.egov.pt.calculator.web.models.collections.Payment;
+import org.egov.pt.calculator.web.models.demand.Demand;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Bulk searches started once for all the criteria of a calculation request
+ *
+ * Both are keyed by consumer code and shared by the estimation and the demand generation
+ */
+@Getter
+@AllArgsConstructor
+public class CalculationPrefetch {
+
+	/** latest demand of the demand period by consumer code */
+	private final CompletableFuture<Map<String, Demand>> oldDemands;
+
+	/** payments sorted by transaction date by consumer code */
+	private final CompletableFuture<Map<String, List<Payment>>> payments;
+
+}
@@ -0,0 +1,156 @@
+package org.egov.pt.calculator.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.web.models.DemandDetailAndCollection;
+import org.egov.pt.calculator.web.models.demand.Demand;
+import org.egov.pt.calculator.web.models.demand.DemandDetail;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Sums of the demand details of one demand built in a single pass over the details
+ *
+ * tax head -> tax amount, collection amount and latest detail
+ * taxes considered for the applicables -> tax amount and collection amount
+ * all the details -> collection amount
+ *
+ * Details added or updated while the rebate, penalty, interest and round off are applied go
+ * through the aggregate so that the sums stay in line with the demand.
+ */
+@Getter
+public class DemandAggregate {
+
+	private final Demand demand;
+
+	/** tax head code ignoring case -> sums of the tax head */
+	@Getter(AccessLevel.NONE)
+	private final Map<String, DemandDetailAndCollection> taxHeads = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	/** tax amount of the taxes the rebate, penalty and interest are applied on */
+	private BigDecimal applicableTaxAmount = BigDecimal.ZERO;
+
+	private BigDecimal applicableCollectionAmount = BigDecimal.ZERO;
+
+	private BigDecimal collectionAmount = BigDecimal.ZERO;
+
+	private DemandAggregate(Demand demand) {
+		this.demand = demand;
+	}
+
+	/**
+	 * Aggregates the demand details of the demand
+	 *
+	 * @param demand demand with its details
+	 */
+	public static DemandAggregate of(Demand demand) {
+
+		DemandAggregate aggregate = new DemandAggregate(demand);
+		for (DemandDetail detail : demand.getDemandDetails())
+			aggregate.aggregate(detail);
+		return aggregate;
+	}
+
+	/**
+	 * Returns the sums and the latest detail of the tax head, null if the demand has no detail of it
+	 *
+	 * @param taxHeadCode tax head code in any case
+	 */
+	public DemandDetailAndCollection getTaxHead(String taxHeadCode) {
+		return taxHeads.get(taxHeadCode);
+	}
+
+	/**
+	 * Returns the tax amount of the tax head, zero if the demand has no detail of it
+	 *
+	 * @param taxHeadCode tax head code in any case
+	 */
+	public BigDecimal getTaxAmountForTaxHead(String taxHeadCode) {
+		DemandDetailAndCollection taxHead = taxHeads.get(taxHeadCode);
+		return null == taxHead ? BigDecimal.ZERO : taxHead.getTaxAmountForTaxHead();
+	}
+
+	/**
+	 * Returns the tax amounts of all the tax heads but the excluded one
+	 *
+	 * @param excludedTaxHeadCode tax head code in any case
+	 */
+	public BigDecimal getTaxAmountExcluding(String excludedTaxHeadCode) {
+
+		BigDecimal taxAmount = BigDecimal.ZERO;
+		for (DemandDetailAndCollection taxHead : taxHeads.values())
+			if (!taxHead.getTaxHeadCode().equalsIgnoreCase(excludedTaxHeadCode))
+				taxAmount = taxAmount.add(taxHead.getTaxAmountForTaxHead());
+		return taxAmount;
+	}
+
+	/**
+	 * Adds the detail to the demand
+	 *
+	 * @param detail new demand detail
+	 */
+	public void addDemandDetail(DemandDetail detail) {
+		demand.getDemandDetails().add(detail);
+		aggregate(detail);
+	}
+
+	/**
+	 * Changes the latest detail of the tax head so that the tax amount of the tax head becomes the
+	 * new amount
+	 *
+	 * @param taxHeadCode tax head code in any case
+	 * @param newAmount tax amount of the tax head
+	 * @return false if the demand has no detail of the tax head
+	 */
+	public boolean updateTaxAmountForTaxHead(String taxHeadCode, BigDecimal newAmount) {
+
+		DemandDetailAndCollection taxHead = taxHeads.get(taxHeadCode);
+		if (null == taxHead)
+			return false;
+
+		DemandDetail latestDetail = taxHead.getLatestDemandDetail();
+		BigDecimal diff = newAmount.subtract(taxHead.getTaxAmountForTaxHead());
+		latestDetail.setTaxAmount(latestDetail.getTaxAmount().add(diff));
+		taxHead.setTaxAmountForTaxHead(taxHead.getTaxAmountForTaxHead().add(diff));
+		if (CalculatorConstants.TAXES_TO_BE_CONSIDERD.contains(latestDetail.getTaxHeadMasterCode()))
+			applicableTaxAmount = applicableTaxAmount.add(diff);
+		return true;
+	}
+
+	/**
+	 * Adds the detail to the sums, the detail created last is the latest of its tax head, the
+	 * first one when none of them has a created time
+	 */
+	private void aggregate(DemandDetail detail) {
+
+		String taxHeadCode = detail.getTaxHeadMasterCode();
+		collectionAmount = collectionAmount.add(detail.getCollectionAmount());
+		if (CalculatorConstants.TAXES_TO_BE_CONSIDERD.contains(taxHeadCode)) {
+			applicableTaxAmount = applicableTaxAmount.add(detail.getTaxAmount());
+			applicableCollectionAmount = applicableCollectionAmount.add(detail.getCollectionAmount());
+		}
+
+		DemandDetailAndCollection taxHead = taxHeads.get(taxHeadCode);
+		if (null == taxHead) {
+			taxHeads.put(taxHeadCode, DemandDetailAndCollection.builder().taxHeadCode(taxHeadCode)
+					.latestDemandDetail(detail).taxAmountForTaxHead(detail.getTaxAmount())
+					.collectionAmountForTaxHead(detail.getCollectionAmount()).build());
+			return;
+		}
+		taxHead.setTaxAmountForTaxHead(taxHead.getTaxAmountForTaxHead().add(detail.getTaxAmount()));
+		taxHead.setCollectionAmountForTaxHead(taxHead.getCollectionAmountForTaxHead().add(detail.getCollectionAmount()));
+		if (getCreatedTime(detail) > getCreatedTime(taxHead.getLatestDemandDetail()))
+			taxHead.setLatestDemandDetail(detail);
+	}
+
+	private static long getCreatedTime(DemandDetail detail) {
+		if (null == detail.getAuditDetails() || null == detail.getAuditDetails().getCreatedTime())
+			return 0L;
+		return detail.getAuditDetails().getCreatedTime();
+	}
+
+}
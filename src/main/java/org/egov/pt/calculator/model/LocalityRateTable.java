@@ -0,0 +1,140 @@
+package org.egov.pt.calculator.model;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.egov.pt.calculator.util.CalculatorUtils;
+import org.egov.pt.calculator.util.FixedPointMoney.Factor;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable base rate lookup of a tenant built once from the
+ * egov-location TenantBoundary localities
+ *
+ * locality code -> road width band -> construction type -> base rate
+ *
+ * Locality codes and construction types are stored in lower case,
+ * road width bands are stored trimmed. Base rates are converted once to
+ * the unscaled value and scale used by the fixed point engine.
+ */
+@Slf4j
+@Getter
+public class LocalityRateTable {
+
+	private final String tenantId;
+
+	private final Map<String, Map<String, Map<String, Factor>>> rates;
+
+	/** fingerprint of the rates, changes only when a rate changes */
+	private final String fingerprint;
+
+	private LocalityRateTable(String tenantId, Map<String, Map<String, Map<String, Factor>>> rates) {
+		this.tenantId = tenantId;
+		this.rates = rates;
+		this.fingerprint = CalculatorUtils.fingerprint(sorted(rates).toString());
+	}
+
+	private static Map<String, Map<String, Map<String, Factor>>> sorted(Map<String, Map<String, Map<String, Factor>>> rates) {
+
+		Map<String, Map<String, Map<String, Factor>>> sorted = new TreeMap<>();
+		rates.forEach((localityCode, roadWidthRates) -> {
+			Map<String, Map<String, Factor>> sortedRoadWidthRates = new TreeMap<>();
+			roadWidthRates.forEach((roadWidth, constructionRates) -> sortedRoadWidthRates.put(roadWidth, new TreeMap<>(constructionRates)));
+			sorted.put(localityCode, sortedRoadWidthRates);
+		});
+		return sorted;
+	}
+
+	/**
+	 * Builds the rate table from the locality boundaries returned by mdms
+	 *
+	 * Every map valued field of a locality is treated as a road width band
+	 * holding the base rate of each construction type
+	 *
+	 * @param tenantId tenant of the boundaries
+	 * @param boundaries locality boundaries from mdms
+	 * @return rate table of the tenant
+	 */
+	@SuppressWarnings("unchecked")
+	public static LocalityRateTable from(String tenantId, List<Map<String, Object>> boundaries) {
+
+		Map<String, Map<String, Map<String, Factor>>> rates = new HashMap<>();
+
+		for (Map<String, Object> boundary : boundaries) {
+
+			Object code = boundary.get("code");
+			if (null == code)
+				continue;
+
+			Map<String, Map<String, Factor>> roadWidthRates = new HashMap<>();
+			for (Map.Entry<String, Object> field : boundary.entrySet()) {
+
+				if (!(field.getValue() instanceof Map))
+					continue;
+
+				Map<String, Factor> constructionRates = new HashMap<>();
+				((Map<String, Object>) field.getValue()).forEach((constructionType, rate) -> {
+					Factor baseRate = toRate(rate);
+					if (null != baseRate)
+						constructionRates.put(constructionType.trim().toLowerCase(), baseRate);
+					else
+						log.warn("Skipping invalid base rate {} for construction type {} of locality {} in tenant {}",
+								rate, constructionType, code, tenantId);
+				});
+				roadWidthRates.put(field.getKey().trim(), Collections.unmodifiableMap(constructionRates));
+			}
+			rates.put(code.toString().toLowerCase(), Collections.unmodifiableMap(roadWidthRates));
+		}
+		return new LocalityRateTable(tenantId, Collections.unmodifiableMap(rates));
+	}
+
+	private static Factor toRate(Object rate) {
+
+		if (null == rate)
+			return null;
+		String value = String.valueOf(rate).trim();
+		if (value.isEmpty())
+			return null;
+		try {
+			return new Factor(new BigDecimal(value));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public boolean hasLocality(String localityCode) {
+		return rates.containsKey(localityCode.toLowerCase());
+	}
+
+	public boolean hasRoadWidth(String localityCode, String roadWidth) {
+		Map<String, Map<String, Factor>> roadWidthRates = rates.get(localityCode.toLowerCase());
+		return null != roadWidthRates && roadWidthRates.containsKey(roadWidth.trim());
+	}
+
+	/**
+	 * Returns the base rate for the given locality, road width and construction type
+	 *
+	 * @return base rate or null if no rate is configured
+	 */
+	public Factor getBaseRate(String localityCode, String roadWidth, String constructionType) {
+
+		Map<String, Map<String, Factor>> roadWidthRates = rates.get(localityCode.toLowerCase());
+		if (null == roadWidthRates)
+			return null;
+		Map<String, Factor> constructionRates = roadWidthRates.get(roadWidth.trim());
+		if (null == constructionRates)
+			return null;
+		return constructionRates.get(constructionType.trim().toLowerCase());
+	}
+
+	public int size() {
+		return rates.size();
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.egov.pt.calculator.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.egov.pt.calculator.web.models.demand.Category;
+import org.egov.pt.calculator.web.models.demand.TaxHeadMaster;
+import org.egov.pt.calculator.web.models.demand.TaxPeriod;
+import org.egov.tracer.model.CustomException;
+
+import lombok.Getter;
+import net.minidev.json.JSONArray;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.EG_PT_FINANCIAL_MASTER_NOT_FOUND;
+import static org.egov.pt.calculator.util.CalculatorConstants.EG_PT_FINANCIAL_MASTER_NOT_FOUND_MSG;
+
+/**
+ * Immutable view of all the masters needed to calculate and bill the
+ * properties of one tenant
+ *
+ * Resolved once per request and shared by the estimation, demand and
+ * rebate/penalty computations instead of fetching the masters per property
+ * or per demand
+ */
+@Getter
+public class MasterSnapshot {
+
+	private final String tenantId;
+
+	private final List<TaxPeriod> taxPeriods;
+
+	private final List<TaxHeadMaster> taxHeadMasters;
+
+	/** assessment year -> financial year master */
+	private final Map<String, Map<String, Object>> financialYears;
+
+	private final Map<String, Map<String, List<Object>>> propertyBasedExemptionMasters;
+
+	private final Map<String, JSONArray> timeBasedExemptionMasters;
+
+	/** rebate, penalty and interest masters compiled once for all the demands */
+	private final Map<String, ApplicableSchedule> timeBasedSchedules;
+
+	private final Map<String, Category> taxHeadCategories;
+
+	private final Map<String, Boolean> taxHeadDebits;
+
+	public MasterSnapshot(String tenantId, List<TaxPeriod> taxPeriods, List<TaxHeadMaster> taxHeadMasters,
+			Map<String, Map<String, Object>> financialYears,
+			Map<String, Map<String, List<Object>>> propertyBasedExemptionMasters,
+			Map<String, JSONArray> timeBasedExemptionMasters) {
+
+		this.tenantId = tenantId;
+		this.taxPeriods = null == taxPeriods ? Collections.emptyList() : Collections.unmodifiableList(taxPeriods);
+		this.taxHeadMasters = null == taxHeadMasters ? Collections.emptyList()
+				: Collections.unmodifiableList(taxHeadMasters);
+		this.financialYears = Collections.unmodifiableMap(financialYears);
+		this.propertyBasedExemptionMasters = Collections.unmodifiableMap(propertyBasedExemptionMasters);
+		this.timeBasedExemptionMasters = Collections.unmodifiableMap(timeBasedExemptionMasters);
+
+		Map<String, ApplicableSchedule> schedules = new HashMap<>();
+		timeBasedExemptionMasters.forEach((masterName, masterList) -> schedules.put(masterName, ApplicableSchedule.from(masterList)));
+		this.timeBasedSchedules = Collections.unmodifiableMap(schedules);
+
+		Map<String, Category> categories = new HashMap<>();
+		Map<String, Boolean> debits = new HashMap<>();
+		for (TaxHeadMaster taxHeadMaster : this.taxHeadMasters) {
+			categories.put(taxHeadMaster.getCode(), taxHeadMaster.getCategory());
+			debits.put(taxHeadMaster.getCode(), taxHeadMaster.getIsDebit());
+		}
+		this.taxHeadCategories = Collections.unmodifiableMap(categories);
+		this.taxHeadDebits = Collections.unmodifiableMap(debits);
+	}
+
+	/**
+	 * Returns the financial year master of the given assessment year
+	 *
+	 * @param assessmentYear assessment year of the property
+	 */
+	public Map<String, Object> getFinancialYear(String assessmentYear) {
+
+		Map<String, Object> financialYear = financialYears.get(assessmentYear);
+		if (null == financialYear)
+			throw new CustomException(EG_PT_FINANCIAL_MASTER_NOT_FOUND, EG_PT_FINANCIAL_MASTER_NOT_FOUND_MSG + assessmentYear);
+		return financialYear;
+	}
+
+	public JSONArray getTimeBasedExemptionMaster(String masterName) {
+		return timeBasedExemptionMasters.get(masterName);
+	}
+
+	/**
+	 * Returns the compiled schedule of the given rebate, penalty or interest master, null if the
+	 * tenant has no such master
+	 *
+	 * @param masterName name of the time based master
+	 */
+	public ApplicableSchedule getTimeBasedSchedule(String masterName) {
+		return timeBasedSchedules.get(masterName);
+	}
+
+}
@@ -42,5 +42,8 @@ public class PropertyPayment {
     private BigDecimal totalPaidAmount;
     @Column(name = "lastpaymentdate")
     private String lastPaymentDate;
+    /** fingerprint of the property and rate inputs the taxes were computed from */
+    @Column(name = "inputhash")
+    private String inputHash;
 
 }
@@ -0,0 +1,63 @@
+package org.egov.pt.calculator.repository;
+
+import java.util.List;
+
+import org.egov.pt.calculator.repository.rowmapper.CalculationBatchRowMapper;
+import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.web.models.CalculationBatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Persists the checkpoint of the bulk calculation runs
+ */
+@Repository
+public class CalculationBatchRepository {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CalculationBatchRowMapper rowMapper;
+
+	public void save(CalculationBatch batch) {
+		jdbcTemplate.update(CalculatorConstants.QUERY_CALCULATION_BATCH_INSERT, batch.getBatchId(), batch.getTenantId(),
+				batch.getLocality(), batch.getFinancialYear(), batch.getOffset(), batch.getProcessed(),
+				batch.getFailed(), batch.getStatus().toString(), batch.getCreatedTime(), batch.getLastModifiedTime());
+	}
+
+	/**
+	 * Moves the checkpoint of the batch, called after every chunk is written
+	 *
+	 * @param batch
+	 */
+	public void updateProgress(CalculationBatch batch) {
+		jdbcTemplate.update(CalculatorConstants.QUERY_CALCULATION_BATCH_UPDATE, batch.getOffset(),
+				batch.getProcessed(), batch.getFailed(), batch.getStatus().toString(), batch.getThroughput(),
+				batch.getLastModifiedTime(),
+				batch.getBatchId());
+	}
+
+	/**
+	 * Marks the batch as running unless it is completed or running with a recent checkpoint
+	 *
+	 * The check and the update are one statement so that only one instance can claim the batch
+	 *
+	 * @param batchId id of the batch
+	 * @param now current epoch millis
+	 * @param staleBefore a running batch without a checkpoint since then can be claimed
+	 * @return whether the batch was claimed
+	 */
+	public boolean claim(String batchId, long now, long staleBefore) {
+		String running = CalculationBatch.StatusEnum.RUNNING.toString();
+		return jdbcTemplate.update(CalculatorConstants.QUERY_CALCULATION_BATCH_CLAIM, running, now, batchId,
+				CalculationBatch.StatusEnum.COMPLETED.toString(), running, staleBefore) == 1;
+	}
+
+	public CalculationBatch getBatch(String batchId) {
+		List<CalculationBatch> batches = jdbcTemplate.query(CalculatorConstants.QUERY_CALCULATION_BATCH_SEARCH,
+				new Object[] { batchId }, rowMapper);
+		return batches.isEmpty() ? null : batches.get(0);
+	}
+}
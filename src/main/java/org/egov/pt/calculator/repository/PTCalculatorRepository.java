@@ -1,14 +1,17 @@
 package org.egov.pt.calculator.repository;
 
+import java.util.HashMap;
 import java.util.Map;
 
+import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.util.DownstreamResilience;
+import org.egov.tracer.model.CustomException;
 import org.egov.tracer.model.ServiceCallException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.client.HttpClientErrorException;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.client.RestTemplate;
@@ -18,6 +21,9 @@ import org.springframework.web.client.RestTemplate;
 public class PTCalculatorRepository {
 	@Autowired
 	private RestTemplate restTemplate;
+
+	@Autowired
+	private DownstreamResilience resilience;
 		
 	/**
 	 * Fetches/Posts results based on the uri and request.
@@ -26,16 +32,38 @@ public class PTCalculatorRepository {
 	 * @author vishal
 	 */
 	public Object fetchResult(StringBuilder uri, Object request) {
-		ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
-		Object response = null;
+		return fetchResult(uri, request, Map.class);
+	}
+
+	/**
+	 * Fetches/Posts results based on the uri and request, the response is read by the message
+	 * converters of the rest template straight into the given type. The call goes through the
+	 * circuit breaker and bulkhead of the service. Every failure is thrown instead of being
+	 * returned as a null response.
+	 *
+	 * @return decoded response
+	 */
+	public <T> T fetchResult(StringBuilder uri, Object request, Class<T> responseType) {
+		T response = null;
 		try {
-			response = restTemplate.postForObject(uri.toString(), request, Map.class);
+			response = resilience.execute(uri.toString(),
+					() -> restTemplate.postForObject(uri.toString(), request, responseType));
+		}catch(ResourceAccessException e) {
+			Map<String, String> map = new HashMap<>();
+			map.put(CalculatorConstants.CONNECT_EXCEPTION_KEY, e.getMessage());
+			throw new CustomException(map);
 		}catch(HttpClientErrorException e) {
 			log.error("External Service threw an Exception: ",e);
 			throw new ServiceCallException(e.getResponseBodyAsString());
+		}catch(HttpServerErrorException e) {
+			log.error("External Service threw an Exception: ",e);
+			throw new ServiceCallException(e.getResponseBodyAsString());
+		}catch(IllegalArgumentException | CustomException e) {
+			throw e;
 		}catch(Exception e) {
 			log.error("Exception while fetching from searcher: ",e);
+			throw new CustomException(CalculatorConstants.EG_PT_DOWNSTREAM_FAILED,
+					CalculatorConstants.EG_PT_DOWNSTREAM_FAILED_MSG + uri);
 		}
 		
 		return response;
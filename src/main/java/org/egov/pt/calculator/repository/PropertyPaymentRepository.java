@@ -1,15 +1,99 @@
 package org.egov.pt.calculator.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
 import org.egov.pt.calculator.model.PropertyPayment;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.egov.pt.calculator.repository.rowmapper.PropertyPaymentRowMapper;
+import org.egov.pt.calculator.util.CalculatorConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
-
+/**
+ * Persists the computed taxes of the properties, one row per property and financial year
+ *
+ * Both lookups are served by the unique (propertyid, financialyear) index
+ */
 @Repository
-public interface PropertyPaymentRepository extends JpaRepository<PropertyPayment, Long> {
+public class PropertyPaymentRepository {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PropertyPaymentRowMapper rowMapper;
+
+	/**
+	 * Inserts or replaces the payments in a single jdbc batch keyed on property id and financial year
+	 *
+	 * Only rows written by the calculator are replaced, a migrated row of the same property and
+	 * financial year is left as it is
+	 *
+	 * @param payments payments to be written
+	 */
+	public void saveAll(List<PropertyPayment> payments) {
+
+		if (payments.isEmpty())
+			return;
+		long lastModifiedTime = System.currentTimeMillis();
+		jdbcTemplate.batchUpdate(CalculatorConstants.QUERY_PROPERTY_PAYMENT_UPSERT, new BatchPreparedStatementSetter() {
+
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				PropertyPayment payment = payments.get(i);
+				ps.setString(1, payment.getId());
+				ps.setString(2, payment.getPropertyId());
+				ps.setString(3, payment.getFinancialYear());
+				ps.setBigDecimal(4, payment.getArrearHouseTax());
+				ps.setBigDecimal(5, payment.getArrearWaterTax());
+				ps.setBigDecimal(6, payment.getArrearSewerTax());
+				ps.setBigDecimal(7, payment.getHouseTax());
+				ps.setBigDecimal(8, payment.getWaterTax());
+				ps.setBigDecimal(9, payment.getSewerTax());
+				ps.setBigDecimal(10, payment.getSurchareHouseTax());
+				ps.setBigDecimal(11, payment.getSurchareWaterTax());
+				ps.setBigDecimal(12, payment.getSurchareSewerTax());
+				ps.setBigDecimal(13, payment.getBillGeneratedTotal());
+				ps.setBigDecimal(14, payment.getTotalPaidAmount());
+				ps.setString(15, payment.getLastPaymentDate());
+				ps.setString(16, payment.getInputHash());
+				ps.setLong(17, lastModifiedTime);
+			}
+
+			@Override
+			public int getBatchSize() {
+				return payments.size();
+			}
+		});
+	}
+
+	public Optional<PropertyPayment> findByPropertyIdAndFinancialYear(String propertyId, String financialYear) {
+		List<PropertyPayment> payments = jdbcTemplate.query(CalculatorConstants.QUERY_PROPERTY_PAYMENT_SEARCH,
+				new Object[] { propertyId, financialYear }, rowMapper);
+		return payments.isEmpty() ? Optional.empty() : Optional.of(payments.get(0));
+	}
 
-    Optional<PropertyPayment> findByPropertyIdAndFinancialYear(String propertyId, String financialYear);
+	/**
+	 * Returns the migrated payment of the property and financial year, rows written by the
+	 * calculator are not returned
+	 */
+	public Optional<PropertyPayment> findMigrated(String propertyId, String financialYear) {
+		List<PropertyPayment> payments = jdbcTemplate.query(CalculatorConstants.QUERY_PROPERTY_PAYMENT_MIGRATED_SEARCH,
+				new Object[] { propertyId, financialYear }, rowMapper);
+		return payments.isEmpty() ? Optional.empty() : Optional.of(payments.get(0));
+	}
 
-    Optional<PropertyPayment> findByPropertyId(String propertyId);
+	/**
+	 * Returns the migrated payment of the latest financial year of the property, rows written by
+	 * the calculator are not returned
+	 */
+	public Optional<PropertyPayment> findLatestMigrated(String propertyId) {
+		List<PropertyPayment> payments = jdbcTemplate.query(CalculatorConstants.QUERY_PROPERTY_PAYMENT_MIGRATED_LATEST,
+				new Object[] { propertyId }, rowMapper);
+		return payments.isEmpty() ? Optional.empty() : Optional.of(payments.get(0));
+	}
 }
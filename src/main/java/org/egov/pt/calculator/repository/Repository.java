@@ -1,14 +1,22 @@
 package org.egov.pt.calculator.repository;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.util.DownstreamResilience;
 import org.egov.tracer.model.CustomException;
 import org.egov.tracer.model.ServiceCallException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
@@ -25,6 +33,9 @@ public class Repository {
 	@Qualifier("secondaryMapper")
 	private ObjectMapper mapper;
 
+	@Autowired
+	private DownstreamResilience resilience;
+
 	/**
 	 * Fetches results from external services through rest call.
 	 *
@@ -33,12 +44,34 @@ public class Repository {
 	 * @return Object
 	 */
 	public Object fetchResult(StringBuilder uri, Object request) {
+		return fetchResult(uri, request, Map.class);
+	}
+
+	/**
+	 * Fetches results from external services through rest call and decodes the response
+	 * straight into the given type
+	 *
+	 * The response body is read token by token into the target model, no intermediate map
+	 * tree is built. Returns null when the service responds without a body, a response which does
+	 * not fit the type fails with an IllegalArgumentException like ObjectMapper.convertValue.
+	 *
+	 * The call goes through the circuit breaker and bulkhead of the service, searches are retried.
+	 * Every other failure is thrown instead of being returned as a null response.
+	 *
+	 * @param uri
+	 * @param request
+	 * @param responseType type of the response
+	 * @return decoded response
+	 */
+	public <T> T fetchResult(StringBuilder uri, Object request, Class<T> responseType) {
 
-		Object response = null;
+		T response = null;
 		log.info("URI: " + uri.toString());
 		try {
-			log.info(mapper.writeValueAsString(request));
-			response = restTemplate.postForObject(uri.toString(), request, Map.class);
+			if (log.isDebugEnabled())
+				log.debug(mapper.writeValueAsString(request));
+			response = resilience.execute(uri.toString(), () -> restTemplate.execute(uri.toString(), HttpMethod.POST,
+					restTemplate.httpEntityCallback(request, responseType), getResponseExtractor(responseType)));
 		} catch (ResourceAccessException e) {
 
 			Map<String, String> map = new HashMap<>();
@@ -48,10 +81,33 @@ public class Repository {
 
 			log.info("the error is : " + e.getResponseBodyAsString());
 			throw new ServiceCallException(e.getResponseBodyAsString());
+		} catch (HttpServerErrorException e) {
+
+			log.error("the error is : " + e.getResponseBodyAsString());
+			throw new ServiceCallException(e.getResponseBodyAsString());
+		} catch (IllegalArgumentException | CustomException e) {
+
+			throw e;
 		}catch (Exception e) {
 
 			log.error("Exception while fetching from searcher: ", e);
+			throw new CustomException(CalculatorConstants.EG_PT_DOWNSTREAM_FAILED,
+					CalculatorConstants.EG_PT_DOWNSTREAM_FAILED_MSG + uri);
 		}
 		return response;
 	}
+
+	private <T> ResponseExtractor<T> getResponseExtractor(Class<T> responseType) {
+		return clientResponse -> {
+			try (JsonParser parser = mapper.getFactory().createParser(clientResponse.getBody())) {
+				if (null == parser.nextToken())
+					return null;
+				return mapper.readValue(parser, responseType);
+			} catch (JsonParseException e) {
+				throw new RestClientException("Malformed response of " + responseType.getSimpleName(), e);
+			} catch (JsonMappingException e) {
+				throw new IllegalArgumentException(e.getMessage(), e);
+			}
+		};
+	}
 }
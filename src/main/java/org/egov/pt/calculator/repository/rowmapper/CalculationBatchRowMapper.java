@@ -0,0 +1,27 @@
+package org.egov.pt.calculator.repository.rowmapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.egov.pt.calculator.web.models.CalculationBatch;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CalculationBatchRowMapper implements RowMapper<CalculationBatch> {
+
+	@Override
+	public CalculationBatch mapRow(ResultSet rs, int rowNum) throws SQLException {
+
+		Double throughput = rs.getDouble("throughput");
+		if (rs.wasNull())
+			throughput = null;
+
+		return CalculationBatch.builder().batchId(rs.getString("batchid")).tenantId(rs.getString("tenantid"))
+				.locality(rs.getString("locality")).financialYear(rs.getString("financialyear"))
+				.offset(rs.getInt("processedoffset")).processed(rs.getLong("processed")).failed(rs.getLong("failed"))
+				.status(CalculationBatch.StatusEnum.valueOf(rs.getString("status"))).throughput(throughput)
+				.createdTime(rs.getLong("createdtime")).lastModifiedTime(rs.getLong("lastmodifiedtime")).build();
+	}
+
+}
@@ -0,0 +1,36 @@
+package org.egov.pt.calculator.repository.rowmapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.egov.pt.calculator.model.PropertyPayment;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PropertyPaymentRowMapper implements RowMapper<PropertyPayment> {
+
+	@Override
+	public PropertyPayment mapRow(ResultSet rs, int rowNum) throws SQLException {
+
+		PropertyPayment payment = new PropertyPayment();
+		payment.setId(rs.getString("id"));
+		payment.setPropertyId(rs.getString("propertyid"));
+		payment.setFinancialYear(rs.getString("financialyear"));
+		payment.setArrearHouseTax(rs.getBigDecimal("arrearhousetax"));
+		payment.setArrearWaterTax(rs.getBigDecimal("arrearwatertax"));
+		payment.setArrearSewerTax(rs.getBigDecimal("arrearsewertax"));
+		payment.setHouseTax(rs.getBigDecimal("housetax"));
+		payment.setWaterTax(rs.getBigDecimal("watertax"));
+		payment.setSewerTax(rs.getBigDecimal("sewertax"));
+		payment.setSurchareHouseTax(rs.getBigDecimal("surcharehousetax"));
+		payment.setSurchareWaterTax(rs.getBigDecimal("surcharewatertax"));
+		payment.setSurchareSewerTax(rs.getBigDecimal("surcharesewertax"));
+		payment.setBillGeneratedTotal(rs.getBigDecimal("billgeneratedtotal"));
+		payment.setTotalPaidAmount(rs.getBigDecimal("totalpaidamount"));
+		payment.setLastPaymentDate(rs.getString("lastpaymentdate"));
+		payment.setInputHash(rs.getString("inputhash"));
+		return payment;
+	}
+
+}
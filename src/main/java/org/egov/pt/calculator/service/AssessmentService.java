@@ -2,7 +2,6 @@ package org.egov.pt.calculator.service;
 
 import java.util.*;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.egov.common.contract.request.RequestInfo;
 import org.egov.pt.calculator.repository.AssessmentRepository;
 import org.egov.pt.calculator.repository.PTCalculatorRepository;
@@ -38,9 +37,6 @@ public class AssessmentService {
 	@Autowired
 	private PTCalculatorRepository ptCalculatorRepository;
 
-	@Autowired
-	private ObjectMapper mapper;
-
 	/**
 	 * persists the assessments
 	 * <p>
@@ -136,9 +132,7 @@ public class AssessmentService {
 
 		RequestInfoWrapper requestInfoWrapper = RequestInfoWrapper.builder().requestInfo(requestInfo).build();
 
-		Object res = ptCalculatorRepository.fetchResult(url, requestInfoWrapper);
-
-		PropertyResponse response = mapper.convertValue(res, PropertyResponse.class);
+		PropertyResponse response = ptCalculatorRepository.fetchResult(url, requestInfoWrapper, PropertyResponse.class);
 
 		Map<String, Property> propertyMap = new HashMap<>();
 
@@ -0,0 +1,330 @@
+package org.egov.pt.calculator.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.egov.common.contract.request.RequestInfo;
+import org.egov.pt.calculator.model.ArvRateFactors;
+import org.egov.pt.calculator.model.LocalityRateTable;
+import org.egov.pt.calculator.model.PropertyPayment;
+import org.egov.pt.calculator.repository.CalculationBatchRepository;
+import org.egov.pt.calculator.repository.PropertyPaymentRepository;
+import org.egov.pt.calculator.repository.Repository;
+import org.egov.pt.calculator.util.CalculatorUtils;
+import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.web.models.BatchCalculationReq;
+import org.egov.pt.calculator.web.models.CalculationBatch;
+import org.egov.pt.calculator.web.models.property.Property;
+import org.egov.pt.calculator.web.models.property.PropertyResponse;
+import org.egov.pt.calculator.web.models.property.RequestInfoWrapper;
+import org.egov.tracer.model.CustomException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import static org.egov.pt.calculator.constants.TaxHeadConstants.PT_HOUSE_TAX;
+import static org.egov.pt.calculator.constants.TaxHeadConstants.PT_SEWER_TAX;
+import static org.egov.pt.calculator.constants.TaxHeadConstants.PT_WATER_TAX;
+import static org.egov.pt.calculator.util.CalculatorConstants.*;
+
+/**
+ * Calculates ARV, house, water and sewer tax for all the properties of a tenant or locality
+ *
+ * Properties are read page by page from property search in to a bounded queue, each page
+ * is calculated in parallel on a dedicated ForkJoin pool and written as one chunk of
+ * PropertyPayment rows. The offset of the last written chunk is checkpointed so that a
+ * failed or interrupted run can be resumed with its batchId.
+ */
+@Service
+@Slf4j
+public class BatchCalculationService {
+
+	@Autowired
+	private EstimationService estimationService;
+
+	@Autowired
+	private Cachebaleservice cachebaleservice;
+
+	@Autowired
+	private PropertyPaymentRepository propertyPaymentRepository;
+
+	@Autowired
+	private CalculationBatchRepository batchRepository;
+
+	@Autowired
+	private Repository repository;
+
+	@Autowired
+	private CalculatorUtils utils;
+
+	@Autowired
+	private Configurations configs;
+
+	private ForkJoinPool calculationPool;
+
+	private ExecutorService batchExecutor;
+
+	@PostConstruct
+	public void init() {
+		calculationPool = new ForkJoinPool(configs.getBatchParallelism());
+		batchExecutor = Executors.newCachedThreadPool();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		batchExecutor.shutdownNow();
+		calculationPool.shutdownNow();
+	}
+
+	/**
+	 * Starts a new calculation batch or resumes the batch with the given batchId from its checkpoint
+	 *
+	 * The batch runs in the background, its progress can be followed with getBatch. A batch is
+	 * claimed in the database before it is resumed so that it runs on one instance only, a
+	 * completed batch or one running with a recent checkpoint is rejected
+	 *
+	 * @param request the batch request
+	 * @return the batch being run
+	 */
+	public CalculationBatch startBatch(BatchCalculationReq request) {
+
+		CalculationBatch batch;
+		long now = System.currentTimeMillis();
+
+		if (!StringUtils.isEmpty(request.getBatchId())) {
+			// the checkpoint is read after the claim so that a taken over batch resumes from its last chunk
+			boolean claimed = batchRepository.claim(request.getBatchId(), now, now - configs.getBatchStaleAfterMillis());
+			batch = getBatch(request.getBatchId());
+			if (!claimed && CalculationBatch.StatusEnum.COMPLETED == batch.getStatus())
+				throw new CustomException(EG_PT_BATCH_COMPLETED, EG_PT_BATCH_COMPLETED_MSG + batch.getBatchId());
+			if (!claimed)
+				throw new CustomException(EG_PT_BATCH_ALREADY_RUNNING, EG_PT_BATCH_ALREADY_RUNNING_MSG + batch.getBatchId());
+		} else {
+			if (StringUtils.isEmpty(request.getTenantId()) || StringUtils.isEmpty(request.getFinancialYear()))
+				throw new CustomException(EG_PT_BATCH_INVALID_REQUEST, EG_PT_BATCH_INVALID_REQUEST_MSG);
+
+			batch = CalculationBatch.builder().batchId(UUID.randomUUID().toString()).tenantId(request.getTenantId())
+					.locality(request.getLocality()).financialYear(request.getFinancialYear()).offset(0)
+					.processed(0L).failed(0L).status(CalculationBatch.StatusEnum.RUNNING).createdTime(now)
+					.lastModifiedTime(now).build();
+			batchRepository.save(batch);
+		}
+
+		final CalculationBatch runningBatch = batch;
+		batchExecutor.submit(() -> run(runningBatch, request.getRequestInfo()));
+		return batch;
+	}
+
+	/**
+	 * Returns the checkpoint of the given batch
+	 *
+	 * @param batchId id of the batch
+	 */
+	public CalculationBatch getBatch(String batchId) {
+		CalculationBatch batch = batchRepository.getBatch(batchId);
+		if (null == batch)
+			throw new CustomException(EG_PT_BATCH_NOT_FOUND, EG_PT_BATCH_NOT_FOUND_MSG + batchId);
+		return batch;
+	}
+
+	private void run(CalculationBatch batch, RequestInfo requestInfo) {
+
+		int chunkSize = configs.getBatchChunkSize();
+		BlockingQueue<PropertyPage> queue = new ArrayBlockingQueue<>(configs.getBatchQueueCapacity());
+		long startTime = System.currentTimeMillis();
+		long processedInRun = 0;
+		Future<?> fetcher = null;
+
+		try {
+			LocalityRateTable localityRateTable = cachebaleservice.getLocalityRateTable(batch.getTenantId(), requestInfo);
+			Map<String, String> categoriesMap = estimationService.getCategoriesMap(requestInfo);
+
+			fetcher = batchExecutor.submit(() -> fetchProperties(batch, requestInfo, queue, chunkSize));
+
+			while (true) {
+				PropertyPage page = queue.take();
+				if (null != page.error)
+					throw page.error;
+				if (page.properties.isEmpty())
+					break;
+
+				AtomicLong failed = new AtomicLong();
+				ArvRateFactors rateFactors = estimationService.getArvRateFactors(categoriesMap);
+				List<PropertyPayment> payments = calculationPool.submit(() -> page.properties.parallelStream()
+						.map(property -> calculate(property, batch, localityRateTable, rateFactors, failed))
+						.filter(Objects::nonNull)
+						.collect(Collectors.toList())).get();
+
+				propertyPaymentRepository.saveAll(payments);
+
+				processedInRun += page.properties.size();
+				batch.setOffset(page.offset + page.properties.size());
+				batch.setProcessed(batch.getProcessed() + payments.size());
+				batch.setFailed(batch.getFailed() + failed.get());
+				batch.setThroughput(getThroughput(processedInRun, startTime));
+				batch.setLastModifiedTime(System.currentTimeMillis());
+				batchRepository.updateProgress(batch);
+
+				log.info("Calculation batch {} checkpoint at offset {}, processed {}, failed {}, {} properties/sec",
+						batch.getBatchId(), batch.getOffset(), batch.getProcessed(), batch.getFailed(),
+						String.format("%.2f", batch.getThroughput()));
+
+				if (page.properties.size() < chunkSize)
+					break;
+			}
+			batch.setStatus(CalculationBatch.StatusEnum.COMPLETED);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.error("Calculation batch {} interrupted at offset {}", batch.getBatchId(), batch.getOffset());
+			batch.setStatus(CalculationBatch.StatusEnum.FAILED);
+		} catch (Exception e) {
+			log.error("Calculation batch " + batch.getBatchId() + " failed at offset " + batch.getOffset(), e);
+			batch.setStatus(CalculationBatch.StatusEnum.FAILED);
+		} finally {
+			if (null != fetcher)
+				fetcher.cancel(true);
+		}
+
+		batch.setThroughput(getThroughput(processedInRun, startTime));
+		batch.setLastModifiedTime(System.currentTimeMillis());
+		batchRepository.updateProgress(batch);
+		log.info("Calculation batch {} finished with status {}, processed {}, failed {}, {} properties/sec",
+				batch.getBatchId(), batch.getStatus(), batch.getProcessed(), batch.getFailed(),
+				String.format("%.2f", batch.getThroughput()));
+	}
+
+	/**
+	 * Reads the properties from the checkpoint onwards in to the queue
+	 *
+	 * The bounded queue blocks the reader while the calculation is behind, a short page marks the end
+	 */
+	private void fetchProperties(CalculationBatch batch, RequestInfo requestInfo, BlockingQueue<PropertyPage> queue,
+			int chunkSize) {
+
+		int offset = batch.getOffset();
+		try {
+			while (true) {
+				StringBuilder url = utils.getPTSearchQuery(batch.getTenantId(), batch.getLocality(), offset, chunkSize);
+				PropertyResponse response = repository.fetchResult(url,
+						RequestInfoWrapper.builder().requestInfo(requestInfo).build(), PropertyResponse.class);
+
+				List<Property> properties = null == response || CollectionUtils.isEmpty(response.getProperties())
+						? Collections.emptyList()
+						: response.getProperties();
+
+				queue.put(new PropertyPage(offset, properties, null));
+				if (properties.size() < chunkSize)
+					return;
+				offset += properties.size();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			try {
+				queue.put(new PropertyPage(offset, Collections.emptyList(), e));
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private PropertyPayment calculate(Property property, CalculationBatch batch, LocalityRateTable localityRateTable,
+			ArvRateFactors rateFactors, AtomicLong failed) {
+		try {
+			PropertyPayment payment = calculatePayment(property, localityRateTable, rateFactors);
+			payment.setFinancialYear(batch.getFinancialYear());
+			payment.setInputHash(estimationService.getInputHash(property, localityRateTable, rateFactors));
+			return payment;
+		} catch (Exception e) {
+			failed.incrementAndGet();
+			log.error("Calculation failed for property {} in batch {}: {}", property.getPropertyId(),
+					batch.getBatchId(), e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Computes the payment with the configured engine
+	 *
+	 * The fixed point engine falls back to BigDecimal for a property whose amounts do not fit in a long.
+	 * The differential engine runs both and fails the property when any tax head amount differs.
+	 */
+	private PropertyPayment calculatePayment(Property property, LocalityRateTable localityRateTable,
+			ArvRateFactors rateFactors) {
+
+		String engine = configs.getBatchCalculationEngine();
+		if (!CALCULATION_ENGINE_FIXED_POINT.equalsIgnoreCase(engine)
+				&& !CALCULATION_ENGINE_DIFFERENTIAL.equalsIgnoreCase(engine))
+			return estimationService.calculatePropertyPayment(property, localityRateTable, rateFactors);
+
+		PropertyPayment fixedPointPayment;
+		try {
+			fixedPointPayment = estimationService.calculatePropertyPaymentFixedPoint(property, localityRateTable, rateFactors);
+		} catch (ArithmeticException e) {
+			log.debug("Fixed point overflow for property {}, falling back to BigDecimal", property.getPropertyId());
+			return estimationService.calculatePropertyPayment(property, localityRateTable, rateFactors);
+		}
+		if (!CALCULATION_ENGINE_DIFFERENTIAL.equalsIgnoreCase(engine))
+			return fixedPointPayment;
+
+		PropertyPayment payment = estimationService.calculatePropertyPayment(property, localityRateTable, rateFactors);
+		Map<String, BigDecimal> expected = getTaxHeadAmounts(payment);
+		Map<String, BigDecimal> actual = getTaxHeadAmounts(fixedPointPayment);
+		List<String> mismatches = expected.keySet().stream()
+				.filter(taxHead -> expected.get(taxHead).compareTo(actual.get(taxHead)) != 0)
+				.map(taxHead -> taxHead + " " + expected.get(taxHead) + " != " + actual.get(taxHead))
+				.collect(Collectors.toList());
+		if (!mismatches.isEmpty())
+			throw new CustomException(EG_PT_ENGINE_MISMATCH, EG_PT_ENGINE_MISMATCH_MSG + mismatches);
+		return payment;
+	}
+
+	/**
+	 * Returns the amounts of the payment by the tax head estimate they become
+	 */
+	private Map<String, BigDecimal> getTaxHeadAmounts(PropertyPayment payment) {
+
+		Map<String, BigDecimal> amounts = new LinkedHashMap<>();
+		amounts.put(PT_HOUSE_TAX, payment.getHouseTax());
+		amounts.put(PT_WATER_TAX, payment.getWaterTax());
+		amounts.put(PT_SEWER_TAX, payment.getSewerTax());
+		return amounts;
+	}
+
+	private Double getThroughput(long processed, long startTime) {
+		long elapsed = System.currentTimeMillis() - startTime;
+		return elapsed > 0 ? processed * 1000.0 / elapsed : 0.0;
+	}
+
+	@AllArgsConstructor
+	private static class PropertyPage {
+
+		private final int offset;
+
+		private final List<Property> properties;
+
+		private final Exception error;
+	}
+
+}
@@ -0,0 +1,200 @@
+package org.egov.pt.calculator.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.egov.common.contract.request.RequestInfo;
+import org.egov.pt.calculator.model.CalculationPrefetch;
+import org.egov.pt.calculator.model.MasterSnapshot;
+import org.egov.pt.calculator.util.CalculatorMetrics;
+import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.web.models.BulkEstimate;
+import org.egov.pt.calculator.web.models.CalculationCriteria;
+import org.egov.pt.calculator.web.models.CalculationReq;
+import org.egov.tracer.model.CustomException;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.*;
+
+/**
+ * Estimates the tax of many properties of one tenant in a single request
+ *
+ * The masters and the demand and payment searches are resolved once for all the criteria, the
+ * estimates are computed in parallel and written as one json line per property as soon as each
+ * is ready. A failed property is written with its errors and does not fail the others.
+ */
+@Service
+@Slf4j
+public class BulkEstimationService {
+
+	private static final byte[] LINE_SEPARATOR = { '\n' };
+
+	@Autowired
+	private EstimationService estimationService;
+
+	@Autowired
+	private MasterDataService mDataService;
+
+	@Autowired
+	private CalculatorMetrics metrics;
+
+	@Autowired
+	private Configurations configs;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger threadCount = new AtomicInteger();
+		executor = new ThreadPoolExecutor(configs.getBulkEstimateParallelism(), configs.getBulkEstimateParallelism(),
+				60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "bulk-estimate-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Validates the request and resolves its masters, then returns the body streaming the estimates
+	 *
+	 * Invalid requests and master failures are thrown before anything is streamed
+	 *
+	 * @param request criteria of the properties to be estimated
+	 * @return body writing one BulkEstimate per line
+	 */
+	public StreamingResponseBody estimate(CalculationReq request) {
+
+		validate(request);
+		RequestInfo requestInfo = request.getRequestInfo();
+		List<CalculationCriteria> criterias = request.getCalculationCriteria();
+
+		MasterSnapshot masterSnapshot = metrics.time(CalculatorMetrics.STAGE_MASTER_FETCH,
+				() -> mDataService.getMasterSnapshot(request));
+		CalculationPrefetch prefetch = estimationService.prefetch(requestInfo, criterias, masterSnapshot);
+		Map<String, String> context = MDC.getCopyOfContextMap();
+
+		return out -> write(criterias, criteria -> estimate(requestInfo, criteria, masterSnapshot, prefetch, context), out);
+	}
+
+	/**
+	 * Keeps at most twice the parallelism of estimates in flight and writes them in the order they
+	 * complete, the output is flushed whenever no finished estimate is waiting
+	 */
+	private void write(List<CalculationCriteria> criterias, EstimateTask task, OutputStream out) throws IOException {
+
+		CompletionService<BulkEstimate> completionService = new ExecutorCompletionService<>(executor);
+		Iterator<CalculationCriteria> pending = criterias.iterator();
+		int window = 2 * configs.getBulkEstimateParallelism();
+		int inFlight = 0;
+		long startTime = System.currentTimeMillis();
+
+		try {
+			for (; inFlight < window && pending.hasNext(); inFlight++)
+				completionService.submit(task.of(pending.next()));
+
+			while (inFlight > 0) {
+				Future<BulkEstimate> done = completionService.poll();
+				if (null == done) {
+					out.flush();
+					done = completionService.take();
+				}
+				inFlight--;
+				if (pending.hasNext()) {
+					completionService.submit(task.of(pending.next()));
+					inFlight++;
+				}
+				out.write(mapper.writeValueAsBytes(done.get()));
+				out.write(LINE_SEPARATOR);
+			}
+			out.flush();
+			log.info("Bulk estimate of {} properties streamed in {} ms", criterias.size(),
+					System.currentTimeMillis() - startTime);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Bulk estimate interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Bulk estimate failed", e.getCause());
+		}
+	}
+
+	private Callable<BulkEstimate> estimate(RequestInfo requestInfo, CalculationCriteria criteria,
+			MasterSnapshot masterSnapshot, CalculationPrefetch prefetch, Map<String, String> context) {
+
+		return () -> {
+			String propertyId = criteria.getProperty().getPropertyId();
+			if (null != context)
+				MDC.setContextMap(context);
+			try {
+				return BulkEstimate.builder().propertyId(propertyId)
+						.calculation(estimationService.estimate(requestInfo, criteria, masterSnapshot, prefetch)).build();
+			} catch (CustomException e) {
+				Map<String, String> errors = CollectionUtils.isEmpty(e.getErrors())
+						? Collections.singletonMap(e.getCode(), e.getMessage())
+						: e.getErrors();
+				return BulkEstimate.builder().propertyId(propertyId).errors(errors).build();
+			} catch (RuntimeException e) {
+				log.error("Bulk estimate failed for property " + propertyId, e);
+				return BulkEstimate.builder().propertyId(propertyId)
+						.errors(Collections.singletonMap(EG_PT_BULK_ESTIMATE_FAILED, String.valueOf(e.getMessage())))
+						.build();
+			} finally {
+				MDC.clear();
+			}
+		};
+	}
+
+	private void validate(CalculationReq request) {
+
+		List<CalculationCriteria> criterias = request.getCalculationCriteria();
+		int max = configs.getBulkEstimateMaxCriteria();
+		if (CollectionUtils.isEmpty(criterias) || criterias.size() > max)
+			throw new CustomException(EG_PT_BULK_ESTIMATE_INVALID_REQUEST,
+					EG_PT_BULK_ESTIMATE_INVALID_REQUEST_MSG.replace("{max}", String.valueOf(max)));
+
+		String tenantId = criterias.get(0).getTenantId();
+		for (CalculationCriteria criteria : criterias)
+			if (null == tenantId || !tenantId.equals(criteria.getTenantId()))
+				throw new CustomException(EG_PT_BULK_ESTIMATE_INVALID_REQUEST, EG_PT_BULK_ESTIMATE_INVALID_TENANT_MSG
+						+ criterias.stream().map(CalculationCriteria::getTenantId).distinct().collect(Collectors.toList()));
+	}
+
+	@FunctionalInterface
+	private interface EstimateTask {
+		Callable<BulkEstimate> of(CalculationCriteria criteria);
+	}
+
+}
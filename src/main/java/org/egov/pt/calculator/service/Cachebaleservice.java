@@ -7,20 +7,35 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.egov.common.contract.request.RequestInfo;
 import org.egov.mdms.model.MasterDetail;
 import org.egov.mdms.model.MdmsCriteria;
 import org.egov.mdms.model.MdmsCriteriaReq;
+import org.egov.mdms.model.MdmsResponse;
 import org.egov.mdms.model.ModuleDetail;
+import org.egov.pt.calculator.model.LocalityRateTable;
 import org.egov.pt.calculator.repository.Repository;
+import org.egov.tracer.model.CustomException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
-import com.jayway.jsonpath.JsonPath;
+import static org.egov.pt.calculator.util.CalculatorConstants.*;
 
 @Service
+@Slf4j
 public class Cachebaleservice {
 	
 	 @Autowired
@@ -33,25 +48,74 @@ public class Cachebaleservice {
 	private String mdmsHost ;
 	
 	
-	 private static final String TENANTS_MORADABAD = "up.moradabad";
-	 private static final String TENANTS_BAREILLY = "up.bareilly";
 	 private static final String TENANT_UP = "up";
 
+	 @Autowired
+	 private CacheManager cacheManager;
+
+	 @Autowired
+	 private MeterRegistry meterRegistry;
+
+	 /**
+	  * Publishes the size and hit ratio of the master caches as pt.cache.size and pt.cache.hit.ratio
+	  */
+	 @PostConstruct
+	 public void registerCacheGauges() {
+
+	        for (String cacheName : Arrays.asList(LOCALITY_RATES_CACHE, CATEGORIES_CACHE, TAX_RESULTS_CACHE)) {
+	            Cache cache = cacheManager.getCache(cacheName);
+	            if (!(cache instanceof CaffeineCache))
+	                continue;
+	            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+	            Gauge.builder("pt.cache.size", nativeCache, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+	                    .tag("cache", cacheName).register(meterRegistry);
+	            Gauge.builder("pt.cache.hit.ratio", nativeCache, c -> c.stats().hitRate())
+	                    .tag("cache", cacheName).register(meterRegistry);
+	        }
+	    }
+
 	
 	
 	 
 
 	 
-	 @Cacheable(value="categories" ,key ="#tenantId")
+	 @Cacheable(value=CATEGORIES_CACHE ,key ="#tenantId", unless = "#result == null")
 	    public Map<String, String> getCategoriesMap(String tenantId, org.egov.common.contract.request.RequestInfo requestinfo) {
+	        return loadCategoriesMap(tenantId, requestinfo);
+	    }
+
+	 /**
+	  * Reloads the categories of the tenant from mdms and replaces the cached entry
+	  */
+	 @CachePut(value=CATEGORIES_CACHE ,key ="#tenantId", unless = "#result == null")
+	    public Map<String, String> reloadCategoriesMap(String tenantId, org.egov.common.contract.request.RequestInfo requestinfo) {
+	        return loadCategoriesMap(tenantId, requestinfo);
+	    }
+
+	 @Cacheable(value=LOCALITY_RATES_CACHE ,key ="#tenantId", sync = true)
+	    public LocalityRateTable getLocalityRateTable(String tenantId, org.egov.common.contract.request.RequestInfo requestinfo) {
+	        return loadLocalityRateTable(tenantId, requestinfo);
+	    }
+
+	 /**
+	  * Reloads the locality rates of the tenant from mdms and replaces the cached entry
+	  */
+	 @CachePut(value=LOCALITY_RATES_CACHE ,key ="#tenantId")
+	    public LocalityRateTable reloadLocalityRateTable(String tenantId, org.egov.common.contract.request.RequestInfo requestinfo) {
+	        return loadLocalityRateTable(tenantId, requestinfo);
+	    }
+
+	 private Map<String, String> loadCategoriesMap(String tenantId, RequestInfo requestinfo) {
 	     
 	    	if (TENANT_UP.equalsIgnoreCase(tenantId)) {
 	    		
 	            StringBuilder uri = new StringBuilder(mdmsHost).append(mdmsEndpoint);
 	            MdmsCriteriaReq criteriaReq = prepareMdMsRequest(tenantId, "PropertyTax",
 	                    Arrays.asList(new String[] { "Categories" }), "$[?(@.label=='category')]", requestinfo);
-	            Object response = restRepo.fetchResult(uri, criteriaReq);
-	            List<Map<String, String>> boundaries = JsonPath.read(response,"$.MdmsRes.PropertyTax.Categories");
+	            MdmsResponse response = restRepo.fetchResult(uri, criteriaReq, MdmsResponse.class);
+	            List<Map<String, String>> boundaries = getMaster(response, "PropertyTax", "Categories");
+	            if (null == boundaries)
+	                throw new CustomException(EG_PT_CATEGORIES_NOT_FOUND, EG_PT_CATEGORIES_NOT_FOUND_MSG + tenantId);
 	            
 	            Map<String, String> categoriesMap = boundaries.stream().collect(Collectors.toMap(b -> b.get("code") , b -> b.get("ratemultiplier"),(oldval,newval) -> newval));
 	            
@@ -61,42 +125,42 @@ public class Cachebaleservice {
 	       
 	        return null;
 	    }
-	 
-	 @Cacheable(value="localitiesRoadWidth" ,key ="#tenantId")
-	    public Map<String, String> getLocalityRebateMap(String tenantId, org.egov.common.contract.request.RequestInfo requestinfo) {
-	     
-	    	if (TENANTS_MORADABAD.equalsIgnoreCase(tenantId)) {
-	    		
-	            StringBuilder uri = new StringBuilder(mdmsHost).append(mdmsEndpoint);
-	            MdmsCriteriaReq criteriaReq = prepareMdMsRequest(tenantId, "egov-location",
-	                    Arrays.asList(new String[] { "TenantBoundary" }), "$..[?(@.label=='Locality')]", requestinfo);
-	            Object response = restRepo.fetchResult(uri, criteriaReq);
-	            List<Map<String, String>> boundaries = JsonPath.read(response,"$.MdmsRes.egov-location.TenantBoundary");
-	            
-	            Map<String, String> localityMap = boundaries.stream().collect(Collectors.toMap(b -> b.get("code") , b -> b.toString()  ,(oldval,newval) -> newval));
-	            
-	            return ((HashMap<String, String>) localityMap).entrySet().parallelStream().collect(Collectors.toMap(entry -> entry.getKey().toLowerCase(), Map.Entry::getValue));
-	          
-	        }
-	        if (TENANTS_BAREILLY.equalsIgnoreCase(tenantId)) {
-	        	
-	            StringBuilder uri = new StringBuilder(mdmsHost).append(mdmsEndpoint);
-	            MdmsCriteriaReq criteriaReq = prepareMdMsRequest(tenantId, "egov-location",
-	                    Arrays.asList(new String[] { "TenantBoundary" }), "$..[?(@.label=='Locality')]", requestinfo);
-	            Object response = restRepo.fetchResult(uri, criteriaReq);
-	            List<Map<String, String>> boundaries = JsonPath.read(response,"$.MdmsRes.egov-location.TenantBoundary");
-	            
-	            Map<String, String> localityMap = boundaries.stream().collect(Collectors.toMap(b -> b.get("code") ,  b -> b.toString() ,(oldval,newval) -> newval));
-	            
-	            return ((HashMap<String, String>) localityMap).entrySet().parallelStream().collect(Collectors.toMap(entry -> entry.getKey().toLowerCase(), Map.Entry::getValue));
-	          
-	        }
-	        return null;
+
+	 /**
+	  * Loads the base rates of all the localities of any tenant from the egov-location TenantBoundary master
+	  *
+	  * Fails with a tenant specific error when mdms is not reachable or has no localities for the tenant,
+	  * a failed load is not cached and is retried by the next request
+	  */
+	 private LocalityRateTable loadLocalityRateTable(String tenantId, RequestInfo requestinfo) {
+
+	        StringBuilder uri = new StringBuilder(mdmsHost).append(mdmsEndpoint);
+	        MdmsCriteriaReq criteriaReq = prepareMdMsRequest(tenantId, "egov-location",
+	                Arrays.asList(new String[] { "TenantBoundary" }), "$..[?(@.label=='Locality')]", requestinfo);
+	        MdmsResponse response = restRepo.fetchResult(uri, criteriaReq, MdmsResponse.class);
+
+	        List<Map<String, Object>> boundaries = getMaster(response, "egov-location", "TenantBoundary");
+	        if (null == boundaries)
+	            log.error("No TenantBoundary master found in mdms for tenant {}", tenantId);
+
+	        if (CollectionUtils.isEmpty(boundaries))
+	            throw new CustomException(EG_PT_TENANT_RATES_NOT_FOUND, EG_PT_TENANT_RATES_NOT_FOUND_MSG + tenantId);
+
+	        LocalityRateTable localityRateTable = LocalityRateTable.from(tenantId, boundaries);
+	        log.info("Loaded base rates of {} localities for tenant {}", localityRateTable.size(), tenantId);
+	        return localityRateTable;
+	    }
+
+	 /**
+	  * Returns the records of the master decoded from the mdms response, null when mdms has no such master
+	  */
+	 @SuppressWarnings("unchecked")
+	 private <T> List<T> getMaster(MdmsResponse response, String moduleName, String masterName) {
+
+	        if (null == response || null == response.getMdmsRes() || null == response.getMdmsRes().get(moduleName))
+	            return null;
+	        return (List<T>) response.getMdmsRes().get(moduleName).get(masterName);
 	    }
-	 
-	 
-	 
-	 
 
 	 private MdmsCriteriaReq prepareMdMsRequest(String tenantId, String moduleName, List<String> names, String filter,
 	            RequestInfo requestInfo) {
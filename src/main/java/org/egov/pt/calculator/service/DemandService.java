@@ -2,14 +2,20 @@ package org.egov.pt.calculator.service;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.egov.common.contract.request.RequestInfo;
 import org.egov.common.contract.response.ResponseInfo;
+import org.egov.pt.calculator.model.CalculationPrefetch;
+import org.egov.pt.calculator.model.DemandAggregate;
+import org.egov.pt.calculator.model.MasterSnapshot;
 import org.egov.pt.calculator.repository.Repository;
 import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.util.CalculatorMetrics;
 import org.egov.pt.calculator.util.CalculatorUtils;
 import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.util.DownstreamCallExecutor;
 import org.egov.pt.calculator.validator.CalculationValidator;
 import org.egov.pt.calculator.web.models.*;
 import org.egov.pt.calculator.web.models.collections.Payment;
@@ -19,15 +25,13 @@ import org.egov.pt.calculator.web.models.property.Property;
 import org.egov.pt.calculator.web.models.property.PropertyDetail;
 import org.egov.pt.calculator.web.models.property.RequestInfoWrapper;
 import org.egov.tracer.model.CustomException;
-import org.egov.tracer.model.ServiceCallException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.minidev.json.JSONArray;
 
@@ -40,9 +44,6 @@ public class DemandService {
 	@Autowired
 	private EstimationService estimationService;
 
-	@Autowired
-	private RestTemplate restTemplate;
-
 	@Autowired
 	private Configurations configs;
 
@@ -73,6 +74,15 @@ public class DemandService {
 	@Autowired
     private PaymentService paymentService;
 
+	@Autowired
+	private DownstreamCallExecutor downstreamCalls;
+
+	@Autowired
+	private CalculatorMetrics metrics;
+
+	@Autowired
+	private DemandWritePipeline demandWriter;
+
 	/**
 	 * Generates and persists the demand to billing service for the given property
 	 *
@@ -84,15 +94,25 @@ public class DemandService {
 	 * @return
 	 */
 	public Map<String, Calculation> generateDemands(CalculationReq request) {
+		return metrics.time(CalculatorMetrics.STAGE_GENERATE_DEMANDS, () -> calculateAndCreateDemands(request));
+	}
+
+	private Map<String, Calculation> calculateAndCreateDemands(CalculationReq request) {
 
 		List<CalculationCriteria> criterias = request.getCalculationCriteria();
 		List<Demand> demands = new ArrayList<>();
+		List<Demand> demandsToCancel = new ArrayList<>();
 		List<String> lesserAssessments = new ArrayList<>();
 		Map<String, String> consumerCodeFinYearMap = new HashMap<>();
-		Map<String,Object> masterMap = mDataService.getMasterMap(request);
+		MasterSnapshot masterSnapshot = metrics.time(CalculatorMetrics.STAGE_MASTER_FETCH,
+				() -> mDataService.getMasterSnapshot(request));
+		CalculationPrefetch prefetch = estimationService.prefetch(request.getRequestInfo(), criterias, masterSnapshot);
 
 
-		Map<String, Calculation> propertyCalculationMap = estimationService.getEstimationPropertyMap(request,masterMap);
+		Map<String, Calculation> propertyCalculationMap = estimationService.getEstimationPropertyMap(request,masterSnapshot,prefetch);
+		long deadline = downstreamCalls.getDeadline();
+		Map<String, Demand> oldDemands = downstreamCalls.await(prefetch.getOldDemands(), "billing-service demand search", deadline);
+		Map<String, List<Payment>> payments = downstreamCalls.await(prefetch.getPayments(), "collection-services payment search", deadline);
 		for (CalculationCriteria criteria : criterias) {
 
 			Property property = criteria.getProperty();
@@ -110,11 +130,11 @@ public class DemandService {
 				.findAny();
 			if(advanceCarryforwardEstimate.isPresent())
 				newTax = advanceCarryforwardEstimate.get().getEstimateAmount();
-			Demand oldDemand = utils.getLatestDemandForCurrentFinancialYear(request.getRequestInfo(),criteria);
+			Demand oldDemand = oldDemands.get(property.getPropertyId());
 
-			// true represents that the demand should be updated from this call
+			// the old demand is cancelled along with the other old demands of this call
 			BigDecimal carryForwardCollectedAmount = getCarryForwardAndCancelOldDemand(newTax, criteria,
-					request.getRequestInfo(),oldDemand, true);
+					request.getRequestInfo(),oldDemand, payments.get(property.getPropertyId()), demandsToCancel);
 
 			if (carryForwardCollectedAmount.doubleValue() >= 0.0) {
 
@@ -136,18 +156,16 @@ public class DemandService {
 					CalculatorConstants.EG_PT_DEPRECIATING_ASSESSMENT_ERROR_MSG + lesserAssessments);
 		}
 
-		DemandRequest dmReq = DemandRequest.builder().demands(demands).requestInfo(request.getRequestInfo()).build();
-		String url = new StringBuilder().append(configs.getBillingServiceHost())
-				.append(configs.getDemandCreateEndPoint()).toString();
-		DemandResponse res = new DemandResponse();
-
-		try {
-			res = restTemplate.postForObject(url, dmReq, DemandResponse.class);
+		/*
+		 * The old demands are cancelled before the new demands of the same periods are created
+		 */
+		if (!CollectionUtils.isEmpty(demandsToCancel))
+			demandWriter.await(demandWriter.update(demandsToCancel, request.getRequestInfo()),
+					"billing-service demand update");
 
-		} catch (HttpClientErrorException e) {
-			throw new ServiceCallException(e.getResponseBodyAsString());
-		}
-		log.info(" The demand Response is : " + res);
+		List<Demand> createdDemands = demandWriter.await(demandWriter.create(demands, request.getRequestInfo()),
+				"billing-service demand create");
+		log.info(" The demand Response is : " + createdDemands);
 	//	assessmentService.saveAssessments(res.getDemands(), consumerCodeFinYearMap, request.getRequestInfo());
 		return propertyCalculationMap;
 	}
@@ -162,6 +180,12 @@ public class DemandService {
 	 * @param requestInfoWrapper
 	 */
 	public BillResponse getBill(GetBillCriteria getBillCriteria, RequestInfoWrapper requestInfoWrapper) {
+		return metrics.time(CalculatorMetrics.STAGE_GET_BILL,
+				() -> updateDemandsAndGenerateBills(getBillCriteria, requestInfoWrapper));
+	}
+
+	private BillResponse updateDemandsAndGenerateBills(GetBillCriteria getBillCriteria,
+			RequestInfoWrapper requestInfoWrapper) {
 
 		DemandResponse res = updateDemands(getBillCriteria, requestInfoWrapper);
 
@@ -169,34 +193,96 @@ public class DemandService {
 		 * Loop through the demands and call generateBill for each demand.
 		 * Group the Bills and return the bill responsew
 		 */
-		List<Bill> bills = new LinkedList<>();
-		BillResponse billResponse;
-		ResponseInfo responseInfo = null;
-		StringBuilder billGenUrl;
+		List<BillGeneration> billGenerations = new LinkedList<>();
 
-		Set<String> consumerCodes = res.getDemands().stream().map(Demand::getConsumerCode).collect(Collectors.toSet());
+		Set<String> consumerCodes = res.getDemands().stream().map(Demand::getConsumerCode)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
 
 		// If toDate or fromDate is not given bill is generated across all taxPeriod for the given consumerCode
 		if(getBillCriteria.getToDate()==null || getBillCriteria.getFromDate()==null){
-			for(String consumerCode : consumerCodes){
-				billGenUrl = utils.getBillGenUrl(getBillCriteria.getTenantId(), consumerCode);
-				billResponse = mapper.convertValue(repository.fetchResult(billGenUrl, requestInfoWrapper), BillResponse.class);
-				responseInfo = billResponse.getResposneInfo();
-				bills.addAll(billResponse.getBill());
-			}
+			for(String consumerCode : consumerCodes)
+				billGenerations.add(new BillGeneration(consumerCode, consumerCode,
+						utils.getBillGenUrl(getBillCriteria.getTenantId(), consumerCode)));
 		}
 		// else if toDate and fromDate is given bill is generated for the taxPeriod corresponding to given dates for the given consumerCode
 		else {
-			for(Demand demand : res.getDemands()){
-				billGenUrl = utils.getBillGenUrl(getBillCriteria.getTenantId(),demand.getId(),demand.getConsumerCode());
-				billResponse = mapper.convertValue(repository.fetchResult(billGenUrl, requestInfoWrapper), BillResponse.class);
+			// a consumer code has a bill per demand here, so the errors are reported by demand id
+			for(Demand demand : res.getDemands())
+				billGenerations.add(new BillGeneration(demand.getConsumerCode(), demand.getId(),
+						utils.getBillGenUrl(getBillCriteria.getTenantId(),demand.getId(),demand.getConsumerCode())));
+		}
+
+		return generateBills(billGenerations, requestInfoWrapper);
+	}
+
+	/**
+	 * Generates the bills one after the other or, in the parallel mode, with at most the configured
+	 * number of calls in flight. The bills are returned in the order of the given generations
+	 *
+	 * A failed generation is reported in the errors of the response against its consumer code, or
+	 * against its demand id when the bills are generated per demand for a date range, the response fails as a whole only when every generation fails. In the parallel mode every
+	 * bill has its own deadline counted from when its call is dispatched, so the later waves of
+	 * calls are not cut short by the time the earlier waves took
+	 *
+	 * @param billGenerations consumer codes and their bill generation urls
+	 * @param requestInfoWrapper request info of the incoming request
+	 * @return the generated bills and the errors by consumer code or demand id
+	 */
+	private BillResponse generateBills(List<BillGeneration> billGenerations, RequestInfoWrapper requestInfoWrapper) {
+
+		boolean parallel = configs.getBillGenerationParallelEnabled();
+		int concurrency = parallel ? Math.max(1, configs.getBillGenerationConcurrency()) : 1;
+
+		List<Bill> bills = new LinkedList<>();
+		Map<String, String> errors = new LinkedHashMap<>();
+		ResponseInfo responseInfo = null;
+		RuntimeException firstError = null;
+		int generated = 0;
+
+		Deque<DispatchedBill> inFlight = new ArrayDeque<>();
+		Iterator<BillGeneration> pending = billGenerations.iterator();
+
+		while (pending.hasNext() || !inFlight.isEmpty()) {
+
+			// in the sequential mode the only bill in flight is generated on this thread when it is taken
+			while (pending.hasNext() && inFlight.size() < concurrency) {
+				BillGeneration billGeneration = pending.next();
+				inFlight.add(parallel
+						? new DispatchedBill(billGeneration, downstreamCalls.getDeadline(),
+								downstreamCalls.submit(() -> generateBill(billGeneration.url, requestInfoWrapper)))
+						: new DispatchedBill(billGeneration, 0L, null));
+			}
+
+			DispatchedBill dispatched = inFlight.poll();
+			BillGeneration billGeneration = dispatched.billGeneration;
+			try {
+				BillResponse billResponse = parallel
+						? downstreamCalls.await(dispatched.future, "billing-service bill generation", dispatched.deadline)
+						: generateBill(billGeneration.url, requestInfoWrapper);
 				responseInfo = billResponse.getResposneInfo();
 				bills.addAll(billResponse.getBill());
+				generated++;
+			} catch (RuntimeException e) {
+				log.error("Bill generation failed for consumer code {} ({}) : {}", billGeneration.consumerCode,
+						billGeneration.errorKey, e.getMessage());
+				errors.put(billGeneration.errorKey, null == e.getMessage() ? e.getClass().getSimpleName() : e.getMessage());
+				if (null == firstError)
+					firstError = e;
 			}
 		}
 
+		if (0 == generated && null != firstError)
+			throw firstError;
 
-		return BillResponse.builder().resposneInfo(responseInfo).bill(bills).build();
+		return BillResponse.builder().resposneInfo(responseInfo).bill(bills).errors(errors).build();
+	}
+
+	private BillResponse generateBill(StringBuilder billGenUrl, RequestInfoWrapper requestInfoWrapper) {
+
+		BillResponse billResponse = repository.fetchResult(billGenUrl, requestInfoWrapper, BillResponse.class);
+		if (null == billResponse || null == billResponse.getBill())
+			throw new CustomException(EG_PT_BILL_GENERATION_FAILED, EG_PT_BILL_GENERATION_FAILED_MSG);
+		return billResponse;
 	}
 
 	/**
@@ -208,22 +294,25 @@ public class DemandService {
 	 * @return
 	 */
 	public DemandResponse updateDemands(GetBillCriteria getBillCriteria, RequestInfoWrapper requestInfoWrapper) {
+		return metrics.time(CalculatorMetrics.STAGE_UPDATE_DEMANDS,
+				() -> searchAndUpdateDemands(getBillCriteria, requestInfoWrapper));
+	}
+
+	private DemandResponse searchAndUpdateDemands(GetBillCriteria getBillCriteria,
+			RequestInfoWrapper requestInfoWrapper) {
 
 		if(getBillCriteria.getAmountExpected() == null) getBillCriteria.setAmountExpected(BigDecimal.ZERO);
 		validator.validateGetBillCriteria(getBillCriteria);
 		RequestInfo requestInfo = requestInfoWrapper.getRequestInfo();
-		Map<String, Map<String, List<Object>>> propertyBasedExemptionMasterMap = new HashMap<>();
-		Map<String, JSONArray> timeBasedExmeptionMasterMap = new HashMap<>();
-		mstrDataService.setPropertyMasterValues(requestInfo, getBillCriteria.getTenantId(),
-				propertyBasedExemptionMasterMap, timeBasedExmeptionMasterMap);
+		MasterSnapshot masterSnapshot = mstrDataService.getMasterSnapshot(requestInfo, getBillCriteria.getTenantId(),
+				Collections.emptySet());
 
 /*
 		if(CollectionUtils.isEmpty(getBillCriteria.getConsumerCodes()))
 			getBillCriteria.setConsumerCodes(Collections.singletonList(getBillCriteria.getPropertyId()+ CalculatorConstants.PT_CONSUMER_CODE_SEPARATOR +getBillCriteria.getAssessmentNumber()));
 */
 
-		DemandResponse res = mapper.convertValue(
-				repository.fetchResult(utils.getDemandSearchUrl(getBillCriteria), requestInfoWrapper),
+		DemandResponse res = repository.fetchResult(utils.getDemandSearchUrl(getBillCriteria), requestInfoWrapper,
 				DemandResponse.class);
 		if (CollectionUtils.isEmpty(res.getDemands())) {
 			Map<String, String> map = new HashMap<>();
@@ -250,9 +339,8 @@ public class DemandService {
 
 		List<Demand> demandsToBeUpdated = new LinkedList<>();
 
-		String tenantId = getBillCriteria.getTenantId();
-
-		List<TaxPeriod> taxPeriods = mstrDataService.getTaxPeriodList(requestInfoWrapper.getRequestInfo(), tenantId);
+		Map<String, List<Payment>> paymentsByConsumerCode = paymentService.getPaymentsByConsumerCodes(
+				getBillCriteria.getTenantId(), consumerCodeToDemandMap.keySet(), requestInfoWrapper);
 
 		for (String consumerCode : getBillCriteria.getConsumerCodes()) {
 			List<Demand> demands = consumerCodeToDemandMap.get(consumerCode);
@@ -266,9 +354,11 @@ public class DemandService {
 					throw new CustomException(CalculatorConstants.EG_PT_INVALID_DEMAND_ERROR,
 							CalculatorConstants.EG_PT_INVALID_DEMAND_ERROR_MSG);
 
-				applytimeBasedApplicables(demand, requestInfoWrapper, timeBasedExmeptionMasterMap,taxPeriods);
+				DemandAggregate aggregate = DemandAggregate.of(demand);
 
-				roundOffDecimalForDemand(demand, requestInfoWrapper);
+				applytimeBasedApplicables(aggregate, paymentsByConsumerCode.get(consumerCode), masterSnapshot);
+
+				roundOffDecimalForDemand(aggregate);
 
 				demandsToBeUpdated.add(demand);
 			}
@@ -278,9 +368,7 @@ public class DemandService {
 		/**
 		 * Call demand update in bulk to update the interest or penalty
 		 */
-		DemandRequest request = DemandRequest.builder().demands(demandsToBeUpdated).requestInfo(requestInfo).build();
-		StringBuilder updateDemandUrl = utils.getUpdateDemandUrl();
-		repository.fetchResult(updateDemandUrl, request);
+		demandWriter.await(demandWriter.update(demandsToBeUpdated, requestInfo), "billing-service demand update");
 		return res;
 	}
 
@@ -294,10 +382,12 @@ public class DemandService {
 	 * and cancels the previous demand by updating it's status to inactive
 	 *
 	 * @param criteria
+	 * @param payments payments made against the property
+	 * @param demandsToCancel collects the cancelled demand to be updated by the caller, null to leave the demand as is
 	 * @return
 	 */
 	protected BigDecimal getCarryForwardAndCancelOldDemand(BigDecimal newTax, CalculationCriteria criteria, RequestInfo requestInfo
-			,Demand demand, boolean cancelDemand) {
+			,Demand demand, List<Payment> payments, List<Demand> demandsToCancel) {
 
 		Property property = criteria.getProperty();
 
@@ -321,17 +411,15 @@ public class DemandService {
 		log.debug("The new tax amount in string : " + newTax.toPlainString());
 
 		if (oldTaxAmt.compareTo(newTax) > 0) {
-			boolean isDepreciationAllowed = utils.isAssessmentDepreciationAllowed(demand,new RequestInfoWrapper(requestInfo));
+			boolean isDepreciationAllowed = utils.isAssessmentDepreciationAllowed(payments);
 			if (!isDepreciationAllowed)
 				carryForward = BigDecimal.valueOf(-1);
 		}
 
-		if (BigDecimal.ZERO.compareTo(carryForward) > 0 || !cancelDemand) return carryForward;
+		if (BigDecimal.ZERO.compareTo(carryForward) > 0 || null == demandsToCancel) return carryForward;
 
 		demand.setStatus(Demand.DemandStatusEnum.CANCELLED);
-		DemandRequest request = DemandRequest.builder().demands(Arrays.asList(demand)).requestInfo(requestInfo).build();
-		StringBuilder updateDemandUrl = utils.getUpdateDemandUrl();
-		repository.fetchResult(updateDemandUrl, request);
+		demandsToCancel.add(demand);
 
 		return carryForward;
 	}
@@ -411,51 +499,35 @@ public class DemandService {
 	 *
 	 * If applied already then the demand details will be updated
 	 *
-	 * @param demand
+	 * @param aggregate sums of the demand details of the demand
 	 * @return
 	 */
-	private boolean applytimeBasedApplicables(Demand demand,RequestInfoWrapper requestInfoWrapper,
-			Map<String, JSONArray> timeBasedExmeptionMasterMap,List<TaxPeriod> taxPeriods) {
+	private boolean applytimeBasedApplicables(DemandAggregate aggregate,List<Payment> payments,
+			MasterSnapshot masterSnapshot) {
 
+		Demand demand = aggregate.getDemand();
 		boolean isCurrentDemand = false;
 		String tenantId = demand.getTenantId();
 		String demandId = demand.getId();
 
-		TaxPeriod taxPeriod = taxPeriods.stream()
+		TaxPeriod taxPeriod = masterSnapshot.getTaxPeriods().stream()
 				.filter(t -> demand.getTaxPeriodFrom().compareTo(t.getFromDate()) >= 0
 				&& demand.getTaxPeriodTo().compareTo(t.getToDate()) <= 0)
 		.findAny().orElse(null);
 
 		if(!(taxPeriod.getFromDate()<= System.currentTimeMillis() && taxPeriod.getToDate() >= System.currentTimeMillis()))
 			isCurrentDemand = true;
-		/*
-		 * method to get the latest collected time from the receipt service
-		 */
-
-
-		List<Payment> payments = paymentService.getPaymentsFromDemand(demand,requestInfoWrapper);
-
 
 		boolean isRebateUpdated = false;
 		boolean isPenaltyUpdated = false;
 		boolean isInterestUpdated = false;
 
-		List<DemandDetail> details = demand.getDemandDetails();
-
-		BigDecimal taxAmt = utils.getTaxAmtFromDemandForApplicablesGeneration(demand);
-		BigDecimal collectedPtTax = BigDecimal.ZERO;
-		BigDecimal totalCollectedAmount = BigDecimal.ZERO;
-
-		for (DemandDetail detail : demand.getDemandDetails()) {
-
-			totalCollectedAmount = totalCollectedAmount.add(detail.getCollectionAmount());
-			if (CalculatorConstants.TAXES_TO_BE_CONSIDERD.contains(detail.getTaxHeadMasterCode()))
-				collectedPtTax = collectedPtTax.add(detail.getCollectionAmount());
-		}
+		BigDecimal taxAmt = aggregate.getApplicableTaxAmount();
+		BigDecimal collectedPtTax = aggregate.getApplicableCollectionAmount();
 
 
 		Map<String, BigDecimal> rebatePenaltyEstimates = payService.applyPenaltyRebateAndInterest(taxAmt,collectedPtTax,
-                taxPeriod.getFinancialYear(), timeBasedExmeptionMasterMap,payments,taxPeriod);
+                taxPeriod.getFinancialYear(), masterSnapshot,payments,taxPeriod);
 
 		if(null == rebatePenaltyEstimates) return isCurrentDemand;
 
@@ -463,44 +535,26 @@ public class DemandService {
 		BigDecimal penalty = rebatePenaltyEstimates.get(CalculatorConstants.PT_TIME_PENALTY);
 		BigDecimal interest = rebatePenaltyEstimates.get(CalculatorConstants.PT_TIME_INTEREST);
 
-		DemandDetailAndCollection latestPenaltyDemandDetail,latestInterestDemandDetail;
-
-
-		BigDecimal oldRebate = BigDecimal.ZERO;
-		for(DemandDetail demandDetail : details) {
-			if(demandDetail.getTaxHeadMasterCode().equalsIgnoreCase(PT_TIME_REBATE)){
-				oldRebate = oldRebate.add(demandDetail.getTaxAmount());
-			}
-		}
+		BigDecimal oldRebate = aggregate.getTaxAmountForTaxHead(PT_TIME_REBATE);
 		if(rebate.compareTo(oldRebate)!=0){
-				details.add(DemandDetail.builder().taxAmount(rebate.subtract(oldRebate))
+				aggregate.addDemandDetail(DemandDetail.builder().taxAmount(rebate.subtract(oldRebate))
 						.taxHeadMasterCode(PT_TIME_REBATE).demandId(demandId).tenantId(tenantId)
 						.build());
 		}
 
 
-		if(interest.compareTo(BigDecimal.ZERO)!=0){
-			latestInterestDemandDetail = utils.getLatestDemandDetailByTaxHead(PT_TIME_INTEREST,details);
-			if(latestInterestDemandDetail!=null){
-				updateTaxAmount(interest,latestInterestDemandDetail);
-				isInterestUpdated = true;
-			}
-		}
+		if(interest.compareTo(BigDecimal.ZERO)!=0)
+			isInterestUpdated = aggregate.updateTaxAmountForTaxHead(PT_TIME_INTEREST, interest);
 
-		if(penalty.compareTo(BigDecimal.ZERO)!=0){
-			latestPenaltyDemandDetail = utils.getLatestDemandDetailByTaxHead(PT_TIME_PENALTY,details);
-			if(latestPenaltyDemandDetail!=null){
-				updateTaxAmount(penalty,latestPenaltyDemandDetail);
-				isPenaltyUpdated = true;
-			}
-		}
+		if(penalty.compareTo(BigDecimal.ZERO)!=0)
+			isPenaltyUpdated = aggregate.updateTaxAmountForTaxHead(PT_TIME_PENALTY, penalty);
 
 
 		if (!isPenaltyUpdated && penalty.compareTo(BigDecimal.ZERO) > 0)
-			details.add(DemandDetail.builder().taxAmount(penalty).taxHeadMasterCode(CalculatorConstants.PT_TIME_PENALTY)
+			aggregate.addDemandDetail(DemandDetail.builder().taxAmount(penalty).taxHeadMasterCode(CalculatorConstants.PT_TIME_PENALTY)
 					.demandId(demandId).tenantId(tenantId).build());
 		if (!isInterestUpdated && interest.compareTo(BigDecimal.ZERO) > 0)
-			details.add(
+			aggregate.addDemandDetail(
 					DemandDetail.builder().taxAmount(interest).taxHeadMasterCode(CalculatorConstants.PT_TIME_INTEREST)
 							.demandId(demandId).tenantId(tenantId).build());
 
@@ -511,35 +565,19 @@ public class DemandService {
 	 *
 	 * Balances the decimal values in the newly updated demand by performing a roundoff
 	 *
-	 * @param demand
-	 * @param requestInfoWrapper
+	 * @param aggregate sums of the demand details of the demand
 	 */
-	public void roundOffDecimalForDemand(Demand demand, RequestInfoWrapper requestInfoWrapper) {
+	public void roundOffDecimalForDemand(DemandAggregate aggregate) {
 
-		List<DemandDetail> details = demand.getDemandDetails();
+		Demand demand = aggregate.getDemand();
 		String tenantId = demand.getTenantId();
 		String demandId = demand.getId();
 
-		BigDecimal taxAmount = BigDecimal.ZERO;
-
-		// Collecting the taxHead master codes with the isDebit field in a Map
-		Map<String, Boolean> isTaxHeadDebitMap = mstrDataService.getTaxHeadMasterMap(requestInfoWrapper.getRequestInfo(), tenantId).stream()
-				.collect(Collectors.toMap(TaxHeadMaster::getCode, TaxHeadMaster::getIsDebit));
-
 		/*
-		 * Summing the credit amount and Debit amount in to separate variables(based on the taxhead:isdebit map) to send to roundoffDecimal method
+		 * Summing the amount of all the tax heads and the previous round off in to separate variables to send to roundoffDecimal method
 		 */
-
-		BigDecimal totalRoundOffAmount = BigDecimal.ZERO;
-		for (DemandDetail detail : demand.getDemandDetails()) {
-
-			if(!detail.getTaxHeadMasterCode().equalsIgnoreCase(PT_ROUNDOFF)){
-				taxAmount = taxAmount.add(detail.getTaxAmount());
-			}
-			else{
-				totalRoundOffAmount = totalRoundOffAmount.add(detail.getTaxAmount());
-			}
-		}
+		BigDecimal taxAmount = aggregate.getTaxAmountExcluding(PT_ROUNDOFF);
+		BigDecimal totalRoundOffAmount = aggregate.getTaxAmountForTaxHead(PT_ROUNDOFF);
 
 		/*
 		 *  An estimate object will be returned incase if there is a decimal value
@@ -554,7 +592,7 @@ public class DemandService {
 				? roundOffEstimate.getEstimateAmount() : BigDecimal.ZERO;
 
 		if(decimalRoundOff.compareTo(BigDecimal.ZERO)!=0){
-				details.add(DemandDetail.builder().taxAmount(roundOffEstimate.getEstimateAmount())
+				aggregate.addDemandDetail(DemandDetail.builder().taxAmount(roundOffEstimate.getEstimateAmount())
 						.taxHeadMasterCode(roundOffEstimate.getTaxHeadCode()).demandId(demandId).tenantId(tenantId).build());
 		}
 
@@ -570,7 +608,7 @@ public class DemandService {
 	 * @param oldDemand The oldDemand against the property
 	 * @return List of DemanDetails for the new demand
 	 */
-	private List<DemandDetail> getAdjustedDemandDetails(String tenantId,Calculation calculation,Demand oldDemand){
+	List<DemandDetail> getAdjustedDemandDetails(String tenantId,Calculation calculation,Demand oldDemand){
 
 		List<DemandDetail> details = new ArrayList<>();
 
@@ -633,16 +671,27 @@ public class DemandService {
 		return details;
 	}
 
-	/**
-	 * Updates the amount in the latest demandDetail by adding the diff between
-	 * new and old amounts to it
-	 * @param newAmount The new tax amount for the taxHead
-	 * @param latestDetailInfo The latest demandDetail for the particular taxHead
-	 */
-	private void updateTaxAmount(BigDecimal newAmount,DemandDetailAndCollection latestDetailInfo){
-		BigDecimal diff = newAmount.subtract(latestDetailInfo.getTaxAmountForTaxHead());
-		BigDecimal newTaxAmountForLatestDemandDetail = latestDetailInfo.getLatestDemandDetail().getTaxAmount().add(diff);
-		latestDetailInfo.getLatestDemandDetail().setTaxAmount(newTaxAmountForLatestDemandDetail);
+	@AllArgsConstructor
+	private static class BillGeneration {
+
+		private final String consumerCode;
+
+		/** key of the error of a failed generation, the consumer code or the demand id */
+		private final String errorKey;
+
+		private final StringBuilder url;
+	}
+
+	@AllArgsConstructor
+	private static class DispatchedBill {
+
+		private final BillGeneration billGeneration;
+
+		/** deadline counted from when the call was dispatched */
+		private final long deadline;
+
+		/** null in the sequential mode, the bill is generated when it is taken */
+		private final CompletableFuture<BillResponse> future;
 	}
 
 }
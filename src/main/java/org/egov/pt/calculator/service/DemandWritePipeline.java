@@ -0,0 +1,171 @@
+package org.egov.pt.calculator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.egov.common.contract.request.RequestInfo;
+import org.egov.pt.calculator.repository.Repository;
+import org.egov.pt.calculator.util.CalculatorMetrics;
+import org.egov.pt.calculator.util.CalculatorUtils;
+import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.util.DownstreamCallExecutor;
+import org.egov.pt.calculator.web.models.demand.Demand;
+import org.egov.pt.calculator.web.models.demand.DemandRequest;
+import org.egov.pt.calculator.web.models.demand.DemandResponse;
+import org.egov.tracer.model.CustomException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.EG_PT_DEMAND_WRITE_MISMATCH;
+import static org.egov.pt.calculator.util.CalculatorConstants.EG_PT_DEMAND_WRITE_MISMATCH_MSG;
+
+/**
+ * Writes the demands of one call to the billing service in chunks
+ *
+ * The demands are split into chunks of at most the configured size, sent at once and concurrently
+ * on the downstream call pool with the request info, logging context and trace of the caller.
+ * Demands of different calls are never sent together. Every demand gets its own outcome, a failed
+ * chunk fails only the demands it carried, the other chunks of the call may have been written.
+ *
+ * A demand is written only when the billing service returns every demand of its chunk. When the
+ * caller stops waiting for a chunk the call to the billing service is not taken back, such a
+ * demand may or may not have been written and has to be searched before it is written again.
+ */
+@Service
+@Slf4j
+public class DemandWritePipeline {
+
+	public static final String CREATE = "create";
+
+	public static final String UPDATE = "update";
+
+	@Autowired
+	private Configurations configs;
+
+	@Autowired
+	private CalculatorUtils utils;
+
+	@Autowired
+	private Repository repository;
+
+	@Autowired
+	private DownstreamCallExecutor downstreamCalls;
+
+	@Autowired
+	private CalculatorMetrics metrics;
+
+	/**
+	 * Sends the demands to be created
+	 *
+	 * @param demands new demands
+	 * @param requestInfo request info the demands are created with
+	 * @return outcome of every demand in the order of the demands
+	 */
+	public List<CompletableFuture<Demand>> create(List<Demand> demands, RequestInfo requestInfo) {
+		return send(CREATE, demands, requestInfo);
+	}
+
+	/**
+	 * Sends the demands to be updated
+	 *
+	 * @param demands updated demands
+	 * @param requestInfo request info the demands are updated with
+	 * @return outcome of every demand in the order of the demands
+	 */
+	public List<CompletableFuture<Demand>> update(List<Demand> demands, RequestInfo requestInfo) {
+		return send(UPDATE, demands, requestInfo);
+	}
+
+	/**
+	 * Waits for the outcomes of the demands until the call timeout or the request deadline
+	 *
+	 * All the outcomes are awaited before the first failure is rethrown
+	 *
+	 * @param outcomes outcomes returned by create or update
+	 * @param callName name of the call for the error message
+	 * @return demands as returned by the billing service
+	 */
+	public List<Demand> await(List<CompletableFuture<Demand>> outcomes, String callName) {
+
+		long deadline = downstreamCalls.getDeadline();
+		List<Demand> demands = new ArrayList<>(outcomes.size());
+		RuntimeException failure = null;
+		int failed = 0;
+
+		for (CompletableFuture<Demand> outcome : outcomes) {
+			try {
+				demands.add(downstreamCalls.await(outcome, callName, deadline));
+			} catch (RuntimeException e) {
+				if (null == failure)
+					failure = e;
+				failed++;
+			}
+		}
+		if (null != failure) {
+			log.error("{} of {} demands failed or were not confirmed in time in {}", failed, outcomes.size(), callName);
+			throw failure;
+		}
+		return demands;
+	}
+
+	private List<CompletableFuture<Demand>> send(String operation, List<Demand> demands, RequestInfo requestInfo) {
+
+		List<CompletableFuture<Demand>> outcomes = new ArrayList<>(demands.size());
+		int chunkSize = configs.getDemandWriteBatchSize();
+		for (int from = 0; from < demands.size(); from += chunkSize)
+			outcomes.addAll(sendChunk(operation, demands.subList(from, Math.min(from + chunkSize, demands.size())),
+					requestInfo));
+		return outcomes;
+	}
+
+	private List<CompletableFuture<Demand>> sendChunk(String operation, List<Demand> chunk, RequestInfo requestInfo) {
+
+		boolean create = CREATE.equals(operation);
+		StringBuilder url = create ? utils.getCreateDemandUrl() : utils.getUpdateDemandUrl();
+		String stage = create ? CalculatorMetrics.STAGE_DEMAND_CREATE : CalculatorMetrics.STAGE_DEMAND_UPDATE;
+		DemandRequest request = DemandRequest.builder().demands(new ArrayList<>(chunk)).requestInfo(requestInfo).build();
+
+		List<CompletableFuture<Demand>> outcomes = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++)
+			outcomes.add(new CompletableFuture<>());
+
+		downstreamCalls.submit(() -> metrics.time(stage, () -> repository.fetchResult(url, request, DemandResponse.class)))
+				.whenComplete((response, error) -> complete(operation, chunk.size(), outcomes, response, error));
+		return outcomes;
+	}
+
+	/**
+	 * Completes the outcome of every demand of the chunk with the demand returned at the same
+	 * position, fails all of them when the call failed or did not return every demand
+	 */
+	private void complete(String operation, int size, List<CompletableFuture<Demand>> outcomes,
+			DemandResponse response, Throwable error) {
+
+		Throwable cause = null;
+		if (null != error)
+			cause = error instanceof CompletionException && null != error.getCause() ? error.getCause() : error;
+		else if (null == response || null == response.getDemands() || response.getDemands().size() != size)
+			cause = new CustomException(EG_PT_DEMAND_WRITE_MISMATCH, EG_PT_DEMAND_WRITE_MISMATCH_MSG
+					.replace("{sent}", String.valueOf(size))
+					.replace("{returned}", String.valueOf(null == response || null == response.getDemands() ? 0
+							: response.getDemands().size())));
+
+		if (null != cause) {
+			log.error("Demand {} of {} demands failed : {}", operation, size, cause.getMessage());
+			metrics.countDemandWrites(operation, CalculatorMetrics.DEMAND_WRITES_FAILED, size);
+			for (CompletableFuture<Demand> outcome : outcomes)
+				outcome.completeExceptionally(cause);
+			return;
+		}
+
+		List<Demand> written = response.getDemands();
+		for (int i = 0; i < size; i++)
+			outcomes.get(i).complete(written.get(i));
+		metrics.countDemandWrites(operation, CalculatorMetrics.DEMAND_WRITES_SUCCEEDED, size);
+	}
+
+}
@@ -1,12 +1,11 @@
 package org.egov.pt.calculator.service;
 
+import org.egov.pt.calculator.model.MasterSnapshot;
 import org.egov.pt.calculator.web.models.CalculationCriteria;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.Map;
 
-import static org.egov.pt.calculator.util.CalculatorConstants.FINANCIALYEAR_MASTER_KEY;
 import static org.egov.pt.calculator.util.CalculatorConstants.FINANCIAL_YEAR_ENDING_DATE;
 import static org.egov.pt.calculator.util.CalculatorConstants.FINANCIAL_YEAR_STARTING_DATE;
 
@@ -19,14 +18,12 @@ public class EnrichmentService {
      * Enriches the fromDate and toDate of the calculation criteria based on financial year
      *
      * @param assessmentYear The assessmentYear of the assessment
-     * @param masterMap      The map containing the financialYear data from MDMS
+     * @param masterSnapshot The masters containing the financialYear data from MDMS
      * @return
      */
-    public void enrichDemandPeriod(CalculationCriteria calculationCriteria,String assessmentYear, Map<String, Object> masterMap) {
+    public void enrichDemandPeriod(CalculationCriteria calculationCriteria,String assessmentYear, MasterSnapshot masterSnapshot) {
 
-        Map<String, Map<String, Object>> financialYearMaster = (Map<String, Map<String, Object>>) masterMap.get(FINANCIALYEAR_MASTER_KEY);
-
-        Map<String, Object> finYearMap = financialYearMaster.get(assessmentYear);
+        Map<String, Object> finYearMap = masterSnapshot.getFinancialYear(assessmentYear);
         Long fromDate = (Long) finYearMap.get(FINANCIAL_YEAR_STARTING_DATE);
         Long toDate = (Long) finYearMap.get(FINANCIAL_YEAR_ENDING_DATE);
 
@@ -8,12 +8,21 @@ import org.apache.commons.lang3.StringUtils;
 import org.egov.common.contract.request.RequestInfo;
 import org.egov.common.contract.request.User;
 import org.egov.common.contract.response.ResponseInfo;
+import org.egov.pt.calculator.model.ArvRateFactors;
+import org.egov.pt.calculator.model.CalculationPrefetch;
+import org.egov.pt.calculator.model.LocalityRateTable;
+import org.egov.pt.calculator.model.MasterSnapshot;
 import org.egov.pt.calculator.model.PropertyPayment;
 import org.egov.pt.calculator.repository.PropertyPaymentRepository;
 import org.egov.pt.calculator.repository.Repository;
 import org.egov.pt.calculator.util.CalculatorConstants;
+import org.egov.pt.calculator.util.CalculatorMetrics;
 import org.egov.pt.calculator.util.CalculatorUtils;
 import org.egov.pt.calculator.util.Configurations;
+import org.egov.pt.calculator.util.DownstreamCallExecutor;
+import org.egov.pt.calculator.util.DownstreamResilience;
+import org.egov.pt.calculator.util.FixedPointMoney;
+import org.egov.pt.calculator.util.FixedPointMoney.Factor;
 import org.egov.pt.calculator.util.PBFirecessUtils;
 import org.egov.pt.calculator.validator.CalculationValidator;
 import org.egov.pt.calculator.web.models.*;
@@ -24,6 +33,8 @@ import org.egov.pt.calculator.web.models.propertyV2.PropertyV2;
 import org.egov.tracer.model.CustomException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestTemplate;
@@ -87,15 +98,35 @@ public class EstimationService {
 	@Autowired
 	private Cachebaleservice cachebaleservice ;
 
+	@Autowired
+	private PaymentSnapshotService paymentSnapshotService;
+
+	@Autowired
+	private MasterCacheService masterCacheService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private DownstreamCallExecutor downstreamCalls;
+
+	@Autowired
+	private DownstreamResilience resilience;
+
+	@Autowired
+	private CalculatorMetrics metrics;
+
+	private volatile ArvRateFactors arvRateFactors;
+
 
 
 	private static final String  ROADWIDTH_VACANT_LAND = "vacant_land" ;
 	private static final String  VACANT =  "VACANT" ;
-	private static final String  CATEGORY_TENANT_ID = "up" ;
 	private static final String  RESIDENTIAL    = "RESIDENTIAL" ;
 	private static final String  NONRESIDENTIAL = "NONRESIDENTIAL" ;
-	private static final String  MIX =  "MIX" ;
 	private static final String  RENTED =  "Rented" ;
+	private static final List<String> FACILITIES = Arrays.asList("hasParking","hasOpenSpace","hasPlantation","hasPowerBackUp","hasSolarPanels","hasFireFighting","hasLiftFacility",
+			"isRainwaterHarvesting","hasAntiPollutionMeasures","hasSolidWasteManagementSystem");
 
 
 	@Value("${customization.pbfirecesslogic:false}")
@@ -121,25 +152,43 @@ public class EstimationService {
 	 * will be called by calculate api
 	 *
 	 * @param request incoming calculation request containing the criteria.
+	 * @param masterSnapshot masters resolved once for all the criteria of the request.
+	 * @param prefetch existing demands and payments of all the criteria of the request.
 	 * @return Map<String, Calculation> key of assessment number and value of calculation object.
 	 */
-	public Map<String, Calculation> getEstimationPropertyMap(CalculationReq request,Map<String,Object> masterMap) {
+	public Map<String, Calculation> getEstimationPropertyMap(CalculationReq request,MasterSnapshot masterSnapshot,
+			CalculationPrefetch prefetch) {
 
 		RequestInfo requestInfo = request.getRequestInfo();
 		List<CalculationCriteria> criteriaList = request.getCalculationCriteria();
 		Map<String, Calculation> calculationPropertyMap = new HashMap<>();
 		for (CalculationCriteria criteria : criteriaList) {
-			Property property = criteria.getProperty();
-			PropertyDetail detail = property.getPropertyDetails().get(0);
-			calcValidator.validatePropertyForCalculation(detail);
-			String assessmentNumber = detail.getAssessmentNumber();
-			Calculation calculation = getCalculation(requestInfo, criteria,masterMap);
-			calculation.setServiceNumber(property.getPropertyId());
-			calculationPropertyMap.put(assessmentNumber, calculation);
+			String assessmentNumber = criteria.getProperty().getPropertyDetails().get(0).getAssessmentNumber();
+			calculationPropertyMap.put(assessmentNumber, estimate(requestInfo, criteria, masterSnapshot, prefetch));
 		}
 		return calculationPropertyMap;
 	}
 
+	/**
+	 * Validates the property of the criteria and estimates its tax
+	 *
+	 * @param requestInfo request info from incoming request.
+	 * @param criteria criteria to be estimated.
+	 * @param masterSnapshot masters resolved once for all the criteria of the request.
+	 * @param prefetch existing demands and payments of all the criteria of the request.
+	 * @return calculation of the criteria with the property id as service number
+	 */
+	public Calculation estimate(RequestInfo requestInfo, CalculationCriteria criteria, MasterSnapshot masterSnapshot,
+			CalculationPrefetch prefetch) {
+
+		Property property = criteria.getProperty();
+		calcValidator.validatePropertyForCalculation(property.getPropertyDetails().get(0));
+		Calculation calculation = metrics.time(CalculatorMetrics.STAGE_GET_CALCULATION,
+				() -> getCalculation(requestInfo, criteria, masterSnapshot, prefetch));
+		calculation.setServiceNumber(property.getPropertyId());
+		return calculation;
+	}
+
 	/**
 	 * Method to estimate the tax to be paid for given property
 	 * will be called by estimate api
@@ -153,8 +202,34 @@ public class EstimationService {
 		Property property = criteria.getProperty();
 		PropertyDetail detail = property.getPropertyDetails().get(0);
 		calcValidator.validatePropertyForCalculation(detail);
-		Map<String,Object> masterMap = mDataService.getMasterMap(request);
-		return new CalculationRes(new ResponseInfo(), Collections.singletonList(getCalculation(request.getRequestInfo(), criteria, masterMap)));
+		MasterSnapshot masterSnapshot = metrics.time(CalculatorMetrics.STAGE_MASTER_FETCH,
+				() -> mDataService.getMasterSnapshot(request));
+		CalculationPrefetch prefetch = prefetch(request.getRequestInfo(), request.getCalculationCriteria(), masterSnapshot);
+		Calculation calculation = metrics.time(CalculatorMetrics.STAGE_GET_CALCULATION,
+				() -> getCalculation(request.getRequestInfo(), criteria, masterSnapshot, prefetch));
+		return CalculationRes.builder().responseInfo(new ResponseInfo()).calculation(Collections.singletonList(calculation)).build();
+	}
+
+	/**
+	 * Enriches the demand period of all the criteria and starts the bulk searches of their
+	 * existing demands and payments, the results are shared by the estimation and the demand generation
+	 *
+	 * @param requestInfo request info from incoming request.
+	 * @param criterias criteria of the request.
+	 * @param masterSnapshot masters containing the financial years of the criteria.
+	 * @return the running searches
+	 */
+	public CalculationPrefetch prefetch(RequestInfo requestInfo, List<CalculationCriteria> criterias,
+			MasterSnapshot masterSnapshot) {
+
+		for (CalculationCriteria criteria : criterias)
+			enrichmentService.enrichDemandPeriod(criteria,
+					criteria.getProperty().getPropertyDetails().get(0).getFinancialYear(), masterSnapshot);
+		return new CalculationPrefetch(
+				downstreamCalls.submit(() -> metrics.time(CalculatorMetrics.STAGE_DEMAND_SEARCH,
+						() -> utils.getLatestDemandsForCurrentFinancialYear(requestInfo, criterias))),
+				downstreamCalls.submit(() -> metrics.time(CalculatorMetrics.STAGE_PAYMENT_SEARCH,
+						() -> getPaymentsFromProperties(requestInfo, criterias))));
 	}
 
 	/**
@@ -164,31 +239,45 @@ public class EstimationService {
 	 *
 	 * @param criteria criteria based on which calculation will be done.
 	 * @param requestInfo request info from incoming request.
+	 * @param prefetch existing demands and payments of the request.
 	 * @return Calculation object constructed based on the resulting tax amount and other applicables(rebate/penalty)
 	 */
-	private Calculation getCalculation(RequestInfo requestInfo, CalculationCriteria criteria,Map<String,Object> masterMap) {
+	private Calculation getCalculation(RequestInfo requestInfo, CalculationCriteria criteria,MasterSnapshot masterSnapshot,
+			CalculationPrefetch prefetch) {
 
 		Property property = criteria.getProperty();
 		PropertyDetail detail = property.getPropertyDetails().get(0);
 		String tenantId = null != property.getTenantId() ? property.getTenantId() : criteria.getTenantId();
 		Optional<PropertyPayment> propertyPayment;
-		enrichmentService.enrichDemandPeriod(criteria, detail.getFinancialYear(), masterMap);
+		enrichmentService.enrichDemandPeriod(criteria, detail.getFinancialYear(), masterSnapshot);
+
+		// payment and demand searches of the request run alongside the tax computation
+		long deadline = downstreamCalls.getDeadline();
 
 		if (detail.getChannel() == MIGRATION) {
-			propertyPayment = propertyPaymentRepository.findByPropertyId(property.getId());
+			// both lookups are index probes on (propertyid, financialyear), the latest year serves older migrations,
+			// rows computed by the calculator for other channels carry no arrears and are skipped
+			propertyPayment = propertyPaymentRepository.findMigrated(property.getId(), detail.getFinancialYear());
+			if (!propertyPayment.isPresent())
+				propertyPayment = propertyPaymentRepository.findLatestMigrated(property.getId());
 		} else {
 			//Create payment table entry
-			propertyPayment = calculateAllTaxes(property , requestInfo  ); 
+			propertyPayment = metrics.time(CalculatorMetrics.STAGE_CALCULATE_ALL_TAXES,
+					() -> calculateAllTaxes(property, requestInfo));
 		}
 
+		List<Payment> payments = downstreamCalls.await(prefetch.getPayments(), "collection-services payment search", deadline)
+				.getOrDefault(property.getPropertyId(), new LinkedList<>());
+
 		List<TaxHeadEstimate> estimates;
 		if (propertyPayment.isPresent()) {
-			estimates = getTaxHeadEstimateForPayment(propertyPayment.get(),masterMap,requestInfo,property);
+			estimates = getTaxHeadEstimateForPayment(propertyPayment.get(),masterSnapshot,payments,property);
 		} else {
 			estimates = new ArrayList<>();
 		}
-		Map<String, Category> taxHeadCategoryMap = ((List<TaxHeadMaster>)masterMap.get(TAXHEADMASTER_MASTER_KEY)).stream()
-				.collect(Collectors.toMap(TaxHeadMaster::getCode, TaxHeadMaster::getCategory));
+		Demand oldDemand = downstreamCalls.await(prefetch.getOldDemands(), "billing-service demand search", deadline)
+				.get(property.getPropertyId());
+		Map<String, Category> taxHeadCategoryMap = masterSnapshot.getTaxHeadCategories();
 
 		BigDecimal taxAmt = BigDecimal.ZERO;
 		BigDecimal penalty = BigDecimal.ZERO;
@@ -238,8 +327,7 @@ public class EstimationService {
 
 		BigDecimal totalAmount = taxAmt.add(penalty).add(rebate).add(exemption);
 		// false in the argument represents that the demand shouldn't be updated from this call
-		Demand oldDemand = utils.getLatestDemandForCurrentFinancialYear(requestInfo,criteria);
-		BigDecimal collectedAmtForOldDemand = demandService.getCarryForwardAndCancelOldDemand(ptTax, criteria, requestInfo,oldDemand, false);
+		BigDecimal collectedAmtForOldDemand = demandService.getCarryForwardAndCancelOldDemand(ptTax, criteria, requestInfo,oldDemand, payments, null);
 
 		if(collectedAmtForOldDemand.compareTo(BigDecimal.ZERO) > 0)
 			estimates.add(TaxHeadEstimate.builder()
@@ -262,7 +350,7 @@ public class EstimationService {
 				.build();
 	}
 
-	private List<TaxHeadEstimate> getTaxHeadEstimateForPayment(PropertyPayment propertyPayment ,Map<String,Object> masterMap,RequestInfo requestInfo,Property property) {
+	private List<TaxHeadEstimate> getTaxHeadEstimateForPayment(PropertyPayment propertyPayment ,MasterSnapshot masterSnapshot,List<Payment> payments,Property property) {
 		List<TaxHeadEstimate> result = new ArrayList<>();
 		result.add(TaxHeadEstimate.builder().taxHeadCode(PT_SEWER_TAX).estimateAmount(
 				propertyPayment.getSewerTax()).build());
@@ -284,10 +372,6 @@ public class EstimationService {
 				propertyPayment.getWaterTax()).build());
 		result.add(TaxHeadEstimate.builder().taxHeadCode(PT_ADVANCE_CARRYFORWARD).estimateAmount(
 				propertyPayment.getTotalPaidAmount()).build());
-		Map<String, Map<String, List<Object>>> propertyBasedExemptionMasterMap = new HashMap<>();
-		Map<String, JSONArray> timeBasedExemptionMasterMap = new HashMap<>();
-		mDataService.setPropertyMasterValues(requestInfo, property.getTenantId(), propertyBasedExemptionMasterMap,
-				timeBasedExemptionMasterMap);
 		
 		BigDecimal taxAmt = new BigDecimal(0);
 		for (TaxHeadEstimate taxHeadEstimate : result) {
@@ -301,13 +385,10 @@ public class EstimationService {
 			
 		}
 		
-		System.out.println("===========Total Amount of tax is======="+taxAmt.toPlainString());
+		log.debug("Total amount of tax is {}", taxAmt);
 		
 		 
-	 getEstimatesForTax(requestInfo,taxAmt,  property, propertyBasedExemptionMasterMap,
-			timeBasedExemptionMasterMap,masterMap,result);
-		
-		log.info("=====================  propertyBasedExemptionMasterMap   {}",propertyBasedExemptionMasterMap.toString());
+	 getEstimatesForTax(payments,taxAmt,  property, masterSnapshot,result);
 		
 		
 		
@@ -315,21 +396,39 @@ public class EstimationService {
 		return result;
 	}
 	
+	/**
+	 * Returns the payments made against the properties of the criteria by property id,
+	 * properties which are not yet created are skipped
+	 */
+	private Map<String, List<Payment>> getPaymentsFromProperties(RequestInfo requestInfo, List<CalculationCriteria> criterias) {
+
+		Map<String, Set<String>> propertyIdsByTenant = new HashMap<>();
+		for (CalculationCriteria criteria : criterias) {
+			Property property = criteria.getProperty();
+			if(!StringUtils.isEmpty(property.getPropertyId()) && !StringUtils.isEmpty(property.getTenantId()))
+				propertyIdsByTenant.computeIfAbsent(property.getTenantId(), key -> new HashSet<>()).add(property.getPropertyId());
+		}
+
+		Map<String, List<Payment>> payments = new HashMap<>();
+		RequestInfoWrapper requestInfoWrapper = RequestInfoWrapper.builder().requestInfo(requestInfo).build();
+		propertyIdsByTenant.forEach((tenantId, propertyIds) ->
+				payments.putAll(paymentService.getPaymentsByConsumerCodes(tenantId, propertyIds, requestInfoWrapper)));
+		return payments;
+	}
+
 	/**
 	 * Return an Estimate list containing all the required tax heads
 	 * mapped with respective amt to be paid.
 	 *
+	 * @param payments payments made against the property, used for the interest
 	 * @param taxAmt tax amount for which rebate & penalty will be applied
 	 * @param usageExemption  total exemption value given for all unit usages
 	 * @param property proeprty  object
 
-	 * @param propertyBasedExemptionMasterMap property masters which contains exemption values associated with them
-	 * @param timeBasedExemeptionMasterMap masters with period based exemption values
-	 * @param masterMap
+	 * @param masterSnapshot property masters with exemption values, period based exemption values and financial years
 	 */
-	private List<TaxHeadEstimate> getEstimatesForTax(RequestInfo requestInfo,BigDecimal taxAmt, Property property,
-			Map<String, Map<String, List<Object>>> propertyBasedExemptionMasterMap,
-			Map<String, JSONArray> timeBasedExemeptionMasterMap,Map<String, Object> masterMap,List<TaxHeadEstimate> estimates) {
+	private List<TaxHeadEstimate> getEstimatesForTax(List<Payment> payments,BigDecimal taxAmt, Property property,
+			MasterSnapshot masterSnapshot,List<TaxHeadEstimate> estimates) {
 
 
 
@@ -374,25 +473,16 @@ public class EstimationService {
 //		estimates.add(
 //				TaxHeadEstimate.builder().taxHeadCode(PT_CANCER_CESS).estimateAmount(cancerCess.setScale(2, 2)).build());
 
-		Map<String, Map<String, Object>> financialYearMaster = (Map<String, Map<String, Object>>) masterMap.get(FINANCIALYEAR_MASTER_KEY);
-
-		Map<String, Object> finYearMap = financialYearMaster.get(assessmentYear);
+		Map<String, Object> finYearMap = masterSnapshot.getFinancialYear(assessmentYear);
 		Long fromDate = (Long) finYearMap.get(FINANCIAL_YEAR_STARTING_DATE);
 		Long toDate = (Long) finYearMap.get(FINANCIAL_YEAR_ENDING_DATE);
 
 		TaxPeriod taxPeriod = TaxPeriod.builder().fromDate(fromDate).toDate(toDate).build();
 
 
-		List<Payment> payments = new LinkedList<>();
-
-		if(!StringUtils.isEmpty(property.getPropertyId()) && !StringUtils.isEmpty(property.getTenantId())){
-			payments = paymentService.getPaymentsFromProperty(property, RequestInfoWrapper.builder().requestInfo(requestInfo).build());
-		}
-
-
 		// get applicable rebate and penalty
 		Map<String, BigDecimal> rebatePenaltyMap = payService.applyPenaltyRebateAndInterest(payableTax, BigDecimal.ZERO,
-				 assessmentYear, timeBasedExemeptionMasterMap,payments,taxPeriod);
+				 assessmentYear, masterSnapshot,payments,taxPeriod);
 
 		if (null != rebatePenaltyMap) {
 
@@ -476,34 +566,6 @@ public class EstimationService {
 	}
 
 
-	private void setTaxperiodForCalculation(RequestInfo requestInfo, String tenantId,Calculation calculation){
-		List<TaxPeriod> taxPeriodList = getTaxPeriodList(requestInfo,tenantId);
-		long currentTime = System.currentTimeMillis();
-		for(TaxPeriod taxPeriod : taxPeriodList ){
-			if(currentTime >= taxPeriod.getFromDate() && currentTime <=taxPeriod.getToDate()){
-				calculation.setFromDate(taxPeriod.getFromDate());
-				calculation.setToDate(taxPeriod.getToDate());
-			}
-		}
-
-	}
-
-	/**
-	 * Fetch Tax Head Masters From billing service
-	 * @param requestInfo
-	 * @param tenantId
-	 * @return
-	 */
-	public List<TaxPeriod> getTaxPeriodList(RequestInfo requestInfo, String tenantId) {
-
-		StringBuilder uri = getTaxPeriodSearchUrl(tenantId);
-		TaxPeriodResponse res = mapper.convertValue(
-				repository.fetchResult(uri, RequestInfoWrapper.builder().requestInfo(requestInfo).build()),
-				TaxPeriodResponse.class);
-		return res.getTaxPeriods();
-	}
-
-
 	/**
 	 * Calculate the rebate and penalty for mutation
 	 * @param requestInfo
@@ -551,7 +613,7 @@ public class EstimationService {
 				.append(SEPARATER).append(CONSUMER_CODE_SEARCH_FIELD_NAME).append(property.getAcknowldgementNumber()).toString();
 		DemandResponse res = new DemandResponse();
 		RequestInfoWrapper requestInfoWrapper = RequestInfoWrapper.builder().requestInfo(requestInfo).build();
-		res = restTemplate.postForObject(url, requestInfoWrapper, DemandResponse.class);
+		res = resilience.execute(url, () -> restTemplate.postForObject(url, requestInfoWrapper, DemandResponse.class));
 		if(CollectionUtils.isEmpty(res.getDemands()) || res.getDemands() == null)
 			generateDemandsFroMutationFee(property, feeStructure, requestInfo);
 		else
@@ -595,7 +657,7 @@ public class EstimationService {
 		String url = new StringBuilder().append(configs.getBillingServiceHost())
 				.append(configs.getDemandUpdateEndPoint()).toString();
 		try {
-			restTemplate.postForObject(url, dmReq, Map.class);
+			resilience.execute(url, () -> restTemplate.postForObject(url, dmReq, Map.class));
 		} catch (Exception e) {
 			log.error("Demand updation failed: ", e);
 			throw new CustomException(DEMAND_UPDATE_FAILED, DEMAND_UPDATE_FAILED_MSG);
@@ -646,7 +708,7 @@ public class EstimationService {
 		String url = new StringBuilder().append(configs.getBillingServiceHost())
 				.append(configs.getDemandCreateEndPoint()).toString();
 		try {
-			restTemplate.postForObject(url, dmReq, Map.class);
+			resilience.execute(url, () -> restTemplate.postForObject(url, dmReq, Map.class));
 		} catch (Exception e) {
 			log.error("Demand creation failed: ", e);
 			throw new CustomException(DEMAND_CREATE_FAILED, DEMAND_CREATE_FAILED_MSG);
@@ -657,22 +719,6 @@ public class EstimationService {
 
 	}
 
-	/**
-	 * Returns the tax head search Url with tenantId and PropertyTax service name
-	 * parameters
-	 *
-	 * @param tenantId
-	 * @return
-	 */
-	public StringBuilder getTaxPeriodSearchUrl(String tenantId) {
-
-		return new StringBuilder().append(configs.getBillingServiceHost())
-				.append(configs.getTaxPeriodSearchEndpoint()).append(URL_PARAMS_SEPARATER)
-				.append(TENANT_ID_FIELD_FOR_SEARCH_URL).append(tenantId)
-				.append(SEPARATER).append(SERVICE_FIELD_FOR_SEARCH_URL)
-				.append(SERVICE_FIELD_VALUE_PT_MUTATION);
-	}
-
 	/**
 	 * Returns the Amount of rebate that has to be applied on the given tax amount for the given period
 	 * @param taxAmt
@@ -868,357 +914,361 @@ public class EstimationService {
 	private Optional<PropertyPayment> calculateAllTaxes(Property property , RequestInfo requestinfo )
 	{
 
-		BigDecimal totalARV = new BigDecimal(0);
+		LocalityRateTable localityRateTable = cachebaleservice.getLocalityRateTable(property.getTenantId(), requestinfo);
 
+		ArvRateFactors rateFactors = getArvRateFactors(getCategoriesMap(requestinfo));
 
+		String inputHash = getInputHash(property, localityRateTable, rateFactors);
 
-		Map<String, String> localityRebateMap = cachebaleservice.getLocalityRebateMap(property.getTenantId(), requestinfo);
+		// identical inputs under the same rate versions have the same taxes whichever property they belong to
+		Cache taxResults = cacheManager.getCache(TAX_RESULTS_CACHE);
+		String memoKey = inputHash + ':' + masterCacheService.getRateVersion(property.getTenantId()) + ':'
+				+ masterCacheService.getRateVersion(CATEGORY_TENANT_ID);
+		PropertyPayment memoized = taxResults.get(memoKey, PropertyPayment.class);
+		if (null != memoized)
+			return Optional.of(copyFor(property, memoized, inputHash));
 
-		Map<String, String> categoriesMap = cachebaleservice.getCategoriesMap(CATEGORY_TENANT_ID, requestinfo);
+		// an unchanged property is served from its stored payment, a changed one is computed and stored behind the request
+		String financialYear = property.getPropertyDetails().get(0).getFinancialYear();
+		Optional<PropertyPayment> stored = paymentSnapshotService.findUnchanged(property.getId(), financialYear, inputHash);
+		if (stored.isPresent()) {
+			taxResults.put(memoKey, copyFor(property, stored.get(), inputHash));
+			return stored;
+		}
 
+		PropertyPayment payment = calculatePropertyPayment(property, localityRateTable, rateFactors);
+		payment.setInputHash(inputHash);
+		paymentSnapshotService.saveLater(payment);
+		taxResults.put(memoKey, copyFor(property, payment, inputHash));
 
-		List<Unit> units =  property.getPropertyDetails().get(0).getUnits();
+		Optional<PropertyPayment> opt = Optional.ofNullable(payment);
+		
+ 	    return  opt ;
+	}
 
-		if(property.getPropertyDetails().get(0).getPropertyType().equalsIgnoreCase(VACANT))
-		{
-			totalARV = totalARV.add(calculateARVForVacantArea( property ,  localityRebateMap , categoriesMap  , totalARV));
-		}else {
-			for (Unit unit : units) {
-				totalARV = totalARV.add(calculateARVPer( property , unit , localityRebateMap , categoriesMap , true , totalARV));
-			} 
+	/**
+	 * Returns a new payment of the given property carrying only the house, water and sewer tax of
+	 * the memoized entry, the entry may belong to another property so its arrears, surcharges and
+	 * payments are never copied and the cached entry is never handed out
+	 */
+	private PropertyPayment copyFor(Property property, PropertyPayment taxes, String inputHash)
+	{
+		PropertyPayment payment = toPropertyPayment(property, taxes.getHouseTax(), taxes.getWaterTax(), taxes.getSewerTax());
+		payment.setInputHash(inputHash);
+		return payment;
+	}
+
+	/**
+	 * Returns the fingerprint of everything the taxes of the property are computed from
+	 *
+	 * @param property property to be assessed
+	 * @param localityRateTable base rates of the property tenant
+	 * @param rateFactors ARV rate factors of the current year
+	 */
+	public String getInputHash(Property property , LocalityRateTable localityRateTable , ArvRateFactors rateFactors)
+	{
+		PropertyDetail detail = property.getPropertyDetails().get(0);
+		String localityCode = null == property.getAddress() || null == property.getAddress().getLocality() ? null
+				: property.getAddress().getLocality().getCode();
+
+		StringBuilder inputs = new StringBuilder(256)
+				.append(localityRateTable.getFingerprint()).append('|').append(rateFactors.getFingerprint())
+				.append('|').append(localityCode).append('|').append(detail.getRoadWidth())
+				.append('|').append(detail.getPropertyType()).append('|').append(detail.getUsageCategoryMajor())
+				.append('|').append(detail.getLandArea()).append('|').append(detail.getConstructionYear())
+				.append('|').append(detail.getAdditionalDetails());
+		if (null != detail.getUnits())
+			for (Unit unit : detail.getUnits())
+				inputs.append('|').append(unit.getUsageCategoryMajor()).append(',').append(unit.getConstructionType())
+						.append(',').append(unit.getUnitArea()).append(',').append(unit.getOccupancyType())
+						.append(',').append(unit.getCategory());
+		return CalculatorUtils.fingerprint(inputs);
+	}
+
+	/**
+	 * Returns the category rate multipliers used for non residential units
+	 *
+	 * @param requestinfo request info of the incoming request
+	 */
+	public Map<String, String> getCategoriesMap(RequestInfo requestinfo) {
+		return cachebaleservice.getCategoriesMap(CATEGORY_TENANT_ID, requestinfo);
+	}
+
+	/**
+	 * Returns the ARV rate factors of the current year for the given category multipliers
+	 *
+	 * The factors are rebuilt only when the year changes or the cached categories are reloaded
+	 *
+	 * @param categoriesMap category rate multipliers
+	 */
+	public ArvRateFactors getArvRateFactors(Map<String, String> categoriesMap) {
+
+		int year = Year.now().getValue();
+		ArvRateFactors rateFactors = arvRateFactors;
+		if (null == rateFactors || !rateFactors.isFor(year, categoriesMap)) {
+			rateFactors = ArvRateFactors.from(year, categoriesMap, configs);
+			arvRateFactors = rateFactors;
 		}
+		return rateFactors;
+	}
+
+	/**
+	 * Computes the ARV and the house, water and sewer tax of the property
+	 *
+	 * The masters and the rate factors are resolved by the caller so that bulk runs resolve them only once
+	 *
+	 * @param property property to be assessed
+	 * @param localityRateTable base rates of the property tenant
+	 * @param rateFactors ARV rate factors of the current year
+	 * @return payment entry with the computed taxes
+	 */
+	public PropertyPayment calculatePropertyPayment(Property property , LocalityRateTable localityRateTable , ArvRateFactors rateFactors)
+	{
+
+		BigDecimalArvTotal arvTotal = new BigDecimalArvTotal();
+		addArvTerms(property, localityRateTable, rateFactors, arvTotal);
 
 		// Calculating tax using Ri
 
-		totalARV = totalARV.setScale(2, BigDecimal.ROUND_HALF_UP);
+		BigDecimal totalARV = arvTotal.total.setScale(2, BigDecimal.ROUND_HALF_UP);
 
 		BigDecimal  totalSewarageTax = totalARV.multiply(configs.getSewerageTaxMultiplier()).setScale(2, BigDecimal.ROUND_HALF_UP);
 		BigDecimal  totalWaterTax = totalARV.multiply(configs.getWaterTaxMultiplier()).setScale(2, BigDecimal.ROUND_HALF_UP);
 		BigDecimal  totalTax = totalARV.multiply(configs.getTaxRateMultiplier()).setScale(2, BigDecimal.ROUND_HALF_UP);
 
-		log.info(" totalARV  {}",totalARV);
-		log.info(" totalSewarageTax  {}",totalSewarageTax);
-		log.info(" totalWaterTax  {}",totalWaterTax);
-		log.info(" totalTax  {}",totalTax);
+		log.debug(" totalARV  {}",totalARV);
+		log.debug(" totalSewarageTax  {}",totalSewarageTax);
+		log.debug(" totalWaterTax  {}",totalWaterTax);
+		log.debug(" totalTax  {}",totalTax);
+
+		return toPropertyPayment(property, totalTax, totalWaterTax, totalSewarageTax);
+	}
+
+	/**
+	 * Computes the same payment as {@link #calculatePropertyPayment(Property, LocalityRateTable, ArvRateFactors)}
+	 * with the ARV and the taxes held as long paise, amounts are converted to BigDecimal only in the returned payment.
+	 * The rates and factors are converted to long once when they are loaded, only the areas are converted per unit
+	 *
+	 * @param property property to be assessed
+	 * @param localityRateTable base rates of the property tenant
+	 * @param rateFactors ARV rate factors of the current year
+	 * @return payment entry with the computed taxes
+	 * @throws ArithmeticException if an amount does not fit in a long
+	 */
+	public PropertyPayment calculatePropertyPaymentFixedPoint(Property property , LocalityRateTable localityRateTable , ArvRateFactors rateFactors)
+	{
+
+		FixedPointArvTotal arvTotal = new FixedPointArvTotal();
+		addArvTerms(property, localityRateTable, rateFactors, arvTotal);
 
+		long totalARV = arvTotal.total.toPaise();
 
+		long totalSewarageTax = FixedPointMoney.multiplyHalfUp(totalARV, rateFactors.getSewerageTaxRate());
+		long totalWaterTax = FixedPointMoney.multiplyHalfUp(totalARV, rateFactors.getWaterTaxRate());
+		long totalTax = FixedPointMoney.multiplyHalfUp(totalARV, rateFactors.getTaxRate());
+
+		return toPropertyPayment(property, FixedPointMoney.toAmount(totalTax), FixedPointMoney.toAmount(totalWaterTax),
+				FixedPointMoney.toAmount(totalSewarageTax));
+	}
+
+	private PropertyPayment toPropertyPayment(Property property, BigDecimal totalTax, BigDecimal totalWaterTax, BigDecimal totalSewarageTax)
+	{
 		PropertyPayment payment = new PropertyPayment();
 
 		payment.setId(UUID.randomUUID().toString());
 		payment.setPropertyId(property.getId());
 		payment.setFinancialYear(property.getPropertyDetails().get(0).getFinancialYear());
-		payment.setArrearHouseTax(new BigDecimal(0));
-		payment.setArrearWaterTax(new BigDecimal(0));
-		payment.setArrearSewerTax(new BigDecimal(0));
+		payment.setArrearHouseTax(BigDecimal.ZERO);
+		payment.setArrearWaterTax(BigDecimal.ZERO);
+		payment.setArrearSewerTax(BigDecimal.ZERO);
 		payment.setHouseTax(totalTax);
 		payment.setWaterTax(totalWaterTax);
 		payment.setSewerTax(totalSewarageTax);
-		payment.setSurchareHouseTax(new BigDecimal(0));
-		payment.setSurchareWaterTax(new BigDecimal(0));
-		payment.setSurchareSewerTax(new BigDecimal(0));
-		payment.setBillGeneratedTotal(new BigDecimal(0));
-		payment.setTotalPaidAmount(new BigDecimal(0));
+		payment.setSurchareHouseTax(BigDecimal.ZERO);
+		payment.setSurchareWaterTax(BigDecimal.ZERO);
+		payment.setSurchareSewerTax(BigDecimal.ZERO);
+		payment.setBillGeneratedTotal(BigDecimal.ZERO);
+		payment.setTotalPaidAmount(BigDecimal.ZERO);
 
 		payment.setLastPaymentDate("");
-		//payment = propertyPaymentRepository.save(payment);
 
-		Optional<PropertyPayment> opt = Optional.ofNullable(payment);
-		
- 	    return  opt ;
+		return payment;
 	}
-	private BigDecimal calculateARVForVacantArea(Property property ,Map<String, String> localityRebateMap ,Map<String, String> categoriesMap , BigDecimal totalARV)
+
+	/**
+	 * Adds the ARV of the vacant land or of every unit of the property to the total
+	 */
+	private void addArvTerms(Property property ,LocalityRateTable localityRateTable ,ArvRateFactors rateFactors ,ArvTotal arvTotal)
 	{
-		BigDecimal totalVacanatArv = new BigDecimal(0);
-		
-		BigDecimal baseRate = new BigDecimal(0);
 
+		PropertyDetail detail = property.getPropertyDetails().get(0);
+		List<Unit> units =  detail.getUnits();
 
-		if(!CalculatorUtils.isNullOrEmptyString(property.getAddress().getLocality().getCode()))
+		if(detail.getPropertyType().equalsIgnoreCase(VACANT))
 		{
-			String localityJson = localityRebateMap.get(property.getAddress().getLocality().getCode().toLowerCase());
-
-			localityJson = localityJson.substring(1, localityJson.length()-1);
-
-			HashMap<String,String> localityMap = HashMapFrom(localityJson) ;
-
-			System.out.println("  localityMap "+localityMap.keySet().toString());
-
-			localityMap =  (HashMap<String, String>)localityMap.entrySet().parallelStream().collect(Collectors.toMap(entry -> entry.getKey().trim(), Map.Entry::getValue));
-
-			String roadWidthJson =  localityMap.get(property.getPropertyDetails().get(0).getRoadWidth().toString()).toString();
-
-
-			String constructionType =   getRoadWidthFromJson(roadWidthJson, ROADWIDTH_VACANT_LAND)  ;
-
-
-			if(!CalculatorUtils.isNullOrEmptyString(constructionType))
-			{
-				baseRate =  new BigDecimal(constructionType);
-			}
+			addVacantAreaArv( property ,  localityRateTable , rateFactors , arvTotal);
+		}else if(!CollectionUtils.isEmpty(units)) {
+			int constructionYear = Integer.parseInt(detail.getConstructionYear());
+			Integer facilitiesRebate = null;
+			for (Unit unit : units) {
+				// the facilities are parsed once per property and only when a non residential unit needs them
+				if (null == facilitiesRebate && isNonResidential(unit.getUsageCategoryMajor()))
+					facilitiesRebate = getFacilitiesRebate(property);
+				addUnitArv( property , unit , localityRateTable , rateFactors , constructionYear ,
+						isNonResidential(unit.getUsageCategoryMajor()) ? facilitiesRebate : 0 , arvTotal);
+			} 
 		}
+	}
+
+	private void addVacantAreaArv(Property property ,LocalityRateTable localityRateTable ,ArvRateFactors rateFactors ,ArvTotal arvTotal)
+	{
+		Factor baseRate = getBaseRate(property, ROADWIDTH_VACANT_LAND, localityRateTable);
 
 		//Skipping MultiFactor because it is only for nonResidential
-		// int multiFactor  = getMultiFactor();
 
-		int nrB = 0;
-		int facilitiesRebate = getFacilitiesRebate(property , null );
+		int facilitiesRebate = isNonResidential(property.getPropertyDetails().get(0).getUsageCategoryMajor())
+				? getFacilitiesRebate(property) : 0;
 		BigDecimal openSpaceArea = new BigDecimal(property.getPropertyDetails().get(0).getLandArea().toString());
 
-
-
-
-		totalVacanatArv = baseRate.multiply(openSpaceArea).multiply(new BigDecimal(100 - nrB + facilitiesRebate)).divide(new BigDecimal(100)).multiply(new BigDecimal(12));
-
-       return totalVacanatArv ;
-
-
+		arvTotal.add(baseRate, openSpaceArea, null, rateFactors.getNonResidentialFactor(facilitiesRebate));
 	}
 
-	private   HashMap HashMapFrom(String s){
-		HashMap base = new HashMap(); 
-		int dismiss = 0; 
-		StringBuilder tmpVal = new StringBuilder(); 
-		StringBuilder tmpKey = new StringBuilder(); 
-
-		for (String next:s.split("")){ 
-			if(dismiss==0){
-				if (next.equals("=")) 
-					dismiss=1; 
-				else
-					tmpKey.append(next); 
-			} else {
-				if (next.equals("{")) //if it's value so need to dismiss
-					dismiss++;
-				else if (next.equals("}")) 
-					dismiss--;
-				else if (next.equals(",")
-						&& dismiss==1) {
-					Object ObjVal = String.valueOf(tmpVal.toString()); 
-					base.put(tmpKey.toString(),ObjVal);
-					tmpKey = new StringBuilder();
-					tmpVal = new StringBuilder();
-					dismiss--;
-					continue; 
-				}
-				tmpVal.append(next); 
-			}
-		}
-		Object objVal = String.valueOf(tmpVal.toString());
-		base.put(tmpKey.toString(), objVal);
-		return base;
-	}
-
-	private BigDecimal calculateARVPer(Property property ,Unit unit ,Map<String, String> localityRebateMap ,Map<String, String> categoriesMap ,boolean isARV , BigDecimal totalARV)
+	private void addUnitArv(Property property ,Unit unit ,LocalityRateTable localityRateTable ,ArvRateFactors rateFactors ,int constructionYear ,int facilitiesRebate ,ArvTotal arvTotal)
 	{
 
-		BigDecimal rB = new BigDecimal(0);
-		BigDecimal nrB = new BigDecimal(0);
-		BigDecimal baseRate = getBaseRate( property , unit , localityRebateMap );
+		Factor baseRate = getBaseRate( property , unit.getConstructionType() , localityRateTable );
 		BigDecimal riArea = new BigDecimal(unit.getUnitArea().toString());
-		BigDecimal multiFactor = new BigDecimal(0);
-		int facilitiesRebate = 0;
-
-		rB = getRebateResidential(unit, Integer.parseInt(property.getPropertyDetails().get(0).getConstructionYear()));
-		multiFactor = getMultiFactor(unit , categoriesMap);
-		nrB = getRebateNonResidential() ;
-		facilitiesRebate = getFacilitiesRebate(property , unit);
-
-		BigDecimal riArvData = new BigDecimal(0);
 
 		String type = unit.getUsageCategoryMajor();
-		if(!CalculatorUtils.isNullOrEmptyString(type) && (type.toUpperCase().equalsIgnoreCase(RESIDENTIAL)) )
-		{
-			riArvData = baseRate.multiply(riArea).multiply(((rB.add(new BigDecimal(100))).divide(new BigDecimal(100)))).multiply(new BigDecimal(12)).multiply(new BigDecimal("0.8"));
-		}else
+		if(!CalculatorUtils.isNullOrEmptyString(type) && type.equalsIgnoreCase(RESIDENTIAL))
 		{
-			riArvData = baseRate.multiply(multiFactor).multiply(riArea).multiply(((new BigDecimal(100).subtract(nrB).add(new BigDecimal(facilitiesRebate))).divide(new BigDecimal(100)))).multiply(new BigDecimal(12));
+			boolean rented = RENTED.equalsIgnoreCase(unit.getOccupancyType());
+			arvTotal.add(baseRate, riArea, null, rateFactors.getResidentialFactor(constructionYear, rented));
+			return;
 		}
 
+		// multi factor is configured only for non residential categories, other units get no ARV
+		Factor multiFactor = isNonResidential(type) ? rateFactors.getMultiFactor(unit.getCategory()) : Factor.ZERO;
 
-
-		return riArvData ;
-
+		arvTotal.add(baseRate, riArea, multiFactor, rateFactors.getNonResidentialFactor(facilitiesRebate));
 	}
 
+	/**
+	 * Running ARV of a property, every term is base rate x area x multi factor x rate factor
+	 */
+	private interface ArvTotal {
 
-	private int getFacilitiesRebate(Property property ,Unit unit )
-	{
-		String type = "" ;
-		if(unit != null)
-		{
-			type = unit.getUsageCategoryMajor();
-		}else
-			type = property.getPropertyDetails().get(0).getUsageCategoryMajor();
-		if (type.toUpperCase().contains(NONRESIDENTIAL)) {
-			if ( property.getPropertyDetails().get(0).getAdditionalDetails() != null &&  !property.getPropertyDetails().get(0).getAdditionalDetails().toString().isEmpty()) {
-				
-				if(property.getPropertyDetails().get(0).getAdditionalDetails().toString().length() >2 )
-				{
-					String facilities = property.getPropertyDetails().get(0).getAdditionalDetails().toString();
-					facilities = facilities.substring(1, facilities.length()-1);
-					
-					
-			        Map<String, String> facilitiesMapData = new HashMap<String, String>();
-			        
-			        String parts[] = facilities.split(",");
-			        
-			        for(String part : parts){
-			            
-			            String facilitiesdata[] = part.split("=");
-			            
-			            String strId = facilitiesdata[0].trim();
-			            String strName = facilitiesdata[1].trim();
-			            
-			            facilitiesMapData.put(strId, strName);
-			        }
-					
-					String[] facilitiesArray = {"hasParking","hasOpenSpace","hasPlantation","hasPowerBackUp","hasSolarPanels","hasFireFighting","hasLiftFacility",
-							"isRainwaterHarvesting","hasAntiPollutionMeasures","hasSolidWasteManagementSystem"};
-					List facilitiesList = Arrays.asList(facilitiesArray);
-					boolean facilitiesPresent = facilitiesList.stream().anyMatch( facility ->  facilitiesMapData.containsKey(facility) && facilitiesMapData.get(facility).toString().equalsIgnoreCase("true")
-							);
-					
-					if(facilitiesPresent)
-					{
-						return configs.getNonResidentialFacilitiesPresentRebate();
-					}else
-						return configs.getNonResidentialFacilitiesNotPresentRebate();
-				}
-			} else {
-				return configs.getNonResidentialFacilitiesNotPresentRebate();
-			}
-		}
-		return 0;
+		/**
+		 * @param multiFactor category multiplier, null for units without one
+		 */
+		void add(Factor baseRate, BigDecimal area, Factor multiFactor, Factor rateFactor);
 	}
 
+	private static class BigDecimalArvTotal implements ArvTotal {
 
+		private BigDecimal total = BigDecimal.ZERO;
 
-
-	private BigDecimal getRebateNonResidential()
-	{
-		return new BigDecimal(0);
+		@Override
+		public void add(Factor baseRate, BigDecimal area, Factor multiFactor, Factor rateFactor) {
+			BigDecimal term = null == multiFactor ? baseRate.getValue() : baseRate.getValue().multiply(multiFactor.getValue());
+			total = total.add(term.multiply(area).multiply(rateFactor.getValue()));
+		}
 	}
 
-	public BigDecimal getMultiFactor(Unit unit ,Map<String, String> categoriesMap)
-	{
-		String type = unit.getUsageCategoryMajor();
-
-		if(type.toUpperCase().contains(NONRESIDENTIAL))
-		{
-			String category = unit.getCategory();
+	private static class FixedPointArvTotal implements ArvTotal {
 
-			if(categoriesMap.containsKey(category.toLowerCase()))
-			{
-				String multipier = categoriesMap.get(category.toLowerCase());
+		private final FixedPointMoney.Sum total = new FixedPointMoney.Sum();
 
-				return new BigDecimal(multipier);
+		@Override
+		public void add(Factor baseRate, BigDecimal area, Factor multiFactor, Factor rateFactor) {
+			long term = Math.multiplyExact(baseRate.getUnscaled(), FixedPointMoney.unscaled(area));
+			int scale = baseRate.getScale() + FixedPointMoney.scale(area);
+			if (null != multiFactor) {
+				term = Math.multiplyExact(term, multiFactor.getUnscaled());
+				scale += multiFactor.getScale();
 			}
-
-
+			total.add(Math.multiplyExact(term, rateFactor.getUnscaled()), scale + rateFactor.getScale());
 		}
-		return new BigDecimal(0);
 	}
 
-	public BigDecimal getRebateResidential(Unit unit , int constructionYear )
+	private boolean isNonResidential(String type)
 	{
-		String type = unit.getUsageCategoryMajor();
-		int year = Year.now().getValue();
-		int difference = year - constructionYear;
-
-
-		boolean checkRented = false ;
-
-
-
-		if(unit.getOccupancyType().equalsIgnoreCase(RENTED))
-		{
-			checkRented = true ;
-		}
+		return !CalculatorUtils.isNullOrEmptyString(type) && type.toUpperCase().contains(NONRESIDENTIAL);
+	}
 
-		if( ( type.equalsIgnoreCase(RESIDENTIAL) || type.equalsIgnoreCase(MIX) ) )
-		{
-			if(difference <= 10)
-			{
-				if(checkRented)
-				{
-					return configs.getTaxExemptionRentedLessThan10();
-				}
-				return configs.getTaxExemptionOwnedLessThan10();
-			}else if(difference >10 && difference <= 20)
+	/**
+	 * Returns the non residential rebate of the property depending on whether any facility is present
+	 */
+	private int getFacilitiesRebate(Property property )
+	{
+		if ( property.getPropertyDetails().get(0).getAdditionalDetails() != null &&  !property.getPropertyDetails().get(0).getAdditionalDetails().toString().isEmpty()) {
+			
+			if(property.getPropertyDetails().get(0).getAdditionalDetails().toString().length() >2 )
 			{
-				if(checkRented)
+				String facilities = property.getPropertyDetails().get(0).getAdditionalDetails().toString();
+				facilities = facilities.substring(1, facilities.length()-1);
+				
+				
+		        Map<String, String> facilitiesMapData = new HashMap<String, String>();
+		        
+		        String parts[] = facilities.split(",");
+		        
+		        for(String part : parts){
+		            
+		            String facilitiesdata[] = part.split("=");
+		            
+		            String strId = facilitiesdata[0].trim();
+		            String strName = facilitiesdata[1].trim();
+		            
+		            facilitiesMapData.put(strId, strName);
+		        }
+				
+				boolean facilitiesPresent = FACILITIES.stream().anyMatch( facility ->  facilitiesMapData.containsKey(facility) && facilitiesMapData.get(facility).equalsIgnoreCase("true")
+						);
+				
+				if(facilitiesPresent)
 				{
-					return configs.getTaxExemptionRentedBetween10and20();
-				}
-				return configs.getTaxExemptionOwnedBetween10and20();
-			}else if(difference > 20 )
-			{
-				if (checkRented) {
-					return configs.getTaxExemptionRentedGreaterThan20();
-				}
-				return configs.getTaxExemptionOwnedGreaterThan20();
+					return configs.getNonResidentialFacilitiesPresentRebate();
+				}else
+					return configs.getNonResidentialFacilitiesNotPresentRebate();
 			}
+		} else {
+			return configs.getNonResidentialFacilitiesNotPresentRebate();
 		}
-
-
-
-		return new BigDecimal(0);
+		return 0;
 	}
 
 
-	private  BigDecimal getBaseRate(Property property ,Unit unit ,Map<String, String> localityRebateMap )
+	/**
+	 * Returns the base rate of the given construction type for the locality and road width of the property
+	 *
+	 * Returns zero if the property has no locality or no rate is configured for the construction type
+	 *
+	 * @param property property being assessed
+	 * @param constructionType construction type of the unit or vacant_land for vacant properties
+	 * @param localityRateTable rate table of the property tenant
+	 */
+	private  Factor getBaseRate(Property property ,String constructionType ,LocalityRateTable localityRateTable )
 	{
 
-		if(!CalculatorUtils.isNullOrEmptyString(property.getAddress().getLocality().getCode()))
-		{
-			String localityJson = localityRebateMap.get(property.getAddress().getLocality().getCode().toLowerCase());
-
-			localityJson = localityJson.substring(1, localityJson.length()-1);
+		String localityCode = property.getAddress().getLocality().getCode();
+		if(CalculatorUtils.isNullOrEmptyString(localityCode))
+			return Factor.ZERO;
 
-			HashMap<String,String> localityMap = HashMapFrom(localityJson) ;
+		String roadWidth = String.valueOf(property.getPropertyDetails().get(0).getRoadWidth());
 
-			log.info("  localityMap {} ",localityMap.keySet().toString());
+		if(null == localityRateTable || !localityRateTable.hasLocality(localityCode))
+			throw new CustomException(EG_PT_LOCALITY_RATE_NOT_FOUND, EG_PT_LOCALITY_RATE_NOT_FOUND_MSG + localityCode);
 
+		if(!localityRateTable.hasRoadWidth(localityCode, roadWidth))
+			throw new CustomException(EG_PT_ROADWIDTH_RATE_NOT_FOUND, EG_PT_ROADWIDTH_RATE_NOT_FOUND_MSG + roadWidth);
 
+		if(CalculatorUtils.isNullOrEmptyString(constructionType))
+			return Factor.ZERO;
 
-			localityMap =  (HashMap<String, String>)localityMap.entrySet().parallelStream().collect(Collectors.toMap(entry -> entry.getKey().trim(), Map.Entry::getValue));
-
-
-			String roadWidthJson =  localityMap.get(property.getPropertyDetails().get(0).getRoadWidth().toString().trim()).toString();
-
-			String constructionType =  getRoadWidthFromJson(roadWidthJson , unit.getConstructionType().trim());
-
-
-			if(!CalculatorUtils.isNullOrEmptyString(constructionType))
-			{
-				return new BigDecimal(constructionType);
-			}else
-			{
-				return new BigDecimal(0);
-			}
-
-		}
-
-		return new BigDecimal(0);
-
-	}
-
-	private String getRoadWidthFromJson(String roadWidth , String type)
-	{
-		String multiplier = "" ;
-		roadWidth = roadWidth.substring(1, roadWidth.length()-1);
-		String[] parts = roadWidth.split(",");
-
-		for (String string : parts) {
-			if(string.trim().toLowerCase().contains(type))
-			{
-				multiplier  = string.trim().replace(type+"=", "") ;
-				System.out.println(string.trim().replace(type+"=", ""));
-			}
-
-		}
+		Factor baseRate = localityRateTable.getBaseRate(localityCode, roadWidth, constructionType);
 
-		return multiplier ;
+		return null != baseRate ? baseRate : Factor.ZERO;
 	}
 
 }
@@ -0,0 +1,258 @@
+package org.egov.pt.calculator.service;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.egov.common.contract.request.RequestInfo;
+import org.egov.pt.calculator.model.LocalityRateTable;
+import org.egov.pt.calculator.util.Configurations;
+import org.egov.tracer.model.CustomException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.*;
+
+/**
+ * Evicts, refreshes and reports on the locality rate and category caches
+ *
+ * Every eviction, and every reload which changed the rates, bumps the rate version of the
+ * tenant so that anything derived from the cached rates can tell when it is stale. The
+ * categories are cached and versioned under CATEGORY_TENANT_ID whichever city they are
+ * evicted or refreshed for.
+ */
+@Service
+@Slf4j
+public class MasterCacheService {
+
+	@Autowired
+	private Cachebaleservice cachebaleservice;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private Configurations configs;
+
+	private final Map<String, AtomicLong> rateVersions = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the current rate version of the tenant
+	 *
+	 * @param tenantId tenant of the rates
+	 */
+	public long getRateVersion(String tenantId) {
+		AtomicLong version = rateVersions.get(tenantId);
+		return null == version ? 0L : version.get();
+	}
+
+	/**
+	 * Drops the cached locality rates of the tenant and the categories,
+	 * the next request reloads them from mdms
+	 *
+	 * Memoized tax results keyed on the previous rate version are no longer reachable and age out
+	 *
+	 * @param tenantId tenant to be evicted
+	 * @return the new rate version of the tenant
+	 */
+	public long evict(String tenantId) {
+		validateTenant(tenantId);
+		getCache(LOCALITY_RATES_CACHE).evict(tenantId);
+		getCache(CATEGORIES_CACHE).evict(CATEGORY_TENANT_ID);
+		log.info("Evicted master caches of tenant {}", tenantId);
+		if (!CATEGORY_TENANT_ID.equals(tenantId))
+			nextRateVersion(CATEGORY_TENANT_ID);
+		return nextRateVersion(tenantId);
+	}
+
+	/**
+	 * Reloads the locality rates and categories of the tenant from mdms
+	 *
+	 * The cached entries are replaced only after the reload succeeds, requests keep
+	 * reading the old entries while the reload is running. Refreshing CATEGORY_TENANT_ID
+	 * reloads only the categories, it has no locality rates of its own.
+	 *
+	 * @param tenantId tenant to be refreshed
+	 * @param requestInfo request info used for the mdms search
+	 * @return the rate version of the tenant, bumped only if its rates changed
+	 */
+	public long refresh(String tenantId, RequestInfo requestInfo) {
+		validateTenant(tenantId);
+		long startTime = System.currentTimeMillis();
+		if (!CATEGORY_TENANT_ID.equals(tenantId))
+			reloadLocalityRates(tenantId, requestInfo);
+		reloadCategories(requestInfo);
+		log.info("Refreshed master caches of tenant {} in {} ms", tenantId, System.currentTimeMillis() - startTime);
+		return getRateVersion(tenantId);
+	}
+
+	/**
+	 * Loads the locality rates of all the configured tenants in parallel once the application is up
+	 *
+	 * The warm up waits at most the configured timeout irrespective of the number of tenants,
+	 * a tenant which fails or times out is logged and loaded again by its first request
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+
+		List<String> tenantIds = configs.getCacheWarmupTenants().stream().map(String::trim)
+				.filter(tenantId -> !tenantId.isEmpty()).distinct().collect(Collectors.toList());
+		if (tenantIds.isEmpty())
+			return;
+
+		long startTime = System.currentTimeMillis();
+		long deadline = startTime + configs.getCacheWarmupTimeoutMillis();
+		RequestInfo requestInfo = new RequestInfo();
+		ExecutorService warmupExecutor = Executors
+				.newFixedThreadPool(Math.min(tenantIds.size(), configs.getCacheWarmupParallelism()));
+
+		Map<String, Future<LocalityRateTable>> loads = new LinkedHashMap<>();
+		tenantIds.forEach(tenantId -> loads.put(tenantId,
+				warmupExecutor.submit(() -> cachebaleservice.getLocalityRateTable(tenantId, requestInfo))));
+		warmupExecutor.shutdown();
+
+		int loaded = 0;
+		try {
+			for (Map.Entry<String, Future<LocalityRateTable>> load : loads.entrySet()) {
+				try {
+					load.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+					loaded++;
+				} catch (ExecutionException e) {
+					log.error("Warm up of locality rates failed for tenant {} : {}", load.getKey(), e.getCause().getMessage());
+				} catch (TimeoutException e) {
+					log.error("Warm up of locality rates timed out for tenant {}", load.getKey());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			warmupExecutor.shutdownNow();
+		}
+		log.info("Warmed up locality rates of {} out of {} tenants in {} ms", loaded, tenantIds.size(),
+				System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Refreshes every cached tenant ahead of its ttl on the scheduler thread
+	 *
+	 * A failed refresh keeps serving the old entry until the next run or its expiry, an
+	 * unchanged reload keeps the rate version and with it the memoized tax results
+	 */
+	@Scheduled(initialDelayString = "${pt.cache.refresh.interval.millis:3600000}",
+			fixedDelayString = "${pt.cache.refresh.interval.millis:3600000}")
+	public void refreshAhead() {
+
+		RequestInfo requestInfo = new RequestInfo();
+
+		for (String tenantId : getCachedKeys(LOCALITY_RATES_CACHE)) {
+			try {
+				reloadLocalityRates(tenantId, requestInfo);
+			} catch (Exception e) {
+				log.error("Refresh ahead of locality rates failed for tenant " + tenantId, e);
+			}
+		}
+
+		if (getCachedKeys(CATEGORIES_CACHE).contains(CATEGORY_TENANT_ID)) {
+			try {
+				reloadCategories(requestInfo);
+			} catch (Exception e) {
+				log.error("Refresh ahead of categories failed for tenant " + CATEGORY_TENANT_ID, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the hit, miss, load and eviction statistics of the master caches
+	 */
+	public Map<String, Map<String, Object>> getStats() {
+
+		Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+		for (String cacheName : cacheManager.getCacheNames()) {
+
+			Cache cache = cacheManager.getCache(cacheName);
+			if (!(cache instanceof CaffeineCache))
+				continue;
+
+			com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+			CacheStats cacheStats = nativeCache.stats();
+
+			Map<String, Object> cacheStat = new LinkedHashMap<>();
+			cacheStat.put("size", nativeCache.estimatedSize());
+			cacheStat.put("maxEntries", nativeCache.policy().eviction().map(eviction -> eviction.getMaximum()).orElse(null));
+			cacheStat.put("hitCount", cacheStats.hitCount());
+			cacheStat.put("missCount", cacheStats.missCount());
+			cacheStat.put("hitRate", cacheStats.hitRate());
+			cacheStat.put("loadSuccessCount", cacheStats.loadSuccessCount());
+			cacheStat.put("loadFailureCount", cacheStats.loadFailureCount());
+			cacheStat.put("averageLoadTimeMillis", TimeUnit.NANOSECONDS.toMillis((long) cacheStats.averageLoadPenalty()));
+			cacheStat.put("evictionCount", cacheStats.evictionCount());
+			stats.put(cacheName, cacheStat);
+		}
+		return stats;
+	}
+
+	private void validateTenant(String tenantId) {
+		if (StringUtils.isEmpty(tenantId))
+			throw new CustomException(EG_PT_CACHE_INVALID_REQUEST, EG_PT_CACHE_INVALID_REQUEST_MSG);
+	}
+
+	/**
+	 * Reloads the locality rates of the tenant, bumps its rate version if the rates changed
+	 */
+	private void reloadLocalityRates(String tenantId, RequestInfo requestInfo) {
+		LocalityRateTable cached = getCache(LOCALITY_RATES_CACHE).get(tenantId, LocalityRateTable.class);
+		LocalityRateTable reloaded = cachebaleservice.reloadLocalityRateTable(tenantId, requestInfo);
+		if (null == cached || !cached.getFingerprint().equals(reloaded.getFingerprint()))
+			nextRateVersion(tenantId);
+	}
+
+	/**
+	 * Reloads the categories, bumps the rate version of CATEGORY_TENANT_ID if a multiplier changed
+	 */
+	private void reloadCategories(RequestInfo requestInfo) {
+		Map<?, ?> cached = getCache(CATEGORIES_CACHE).get(CATEGORY_TENANT_ID, Map.class);
+		Map<String, String> reloaded = cachebaleservice.reloadCategoriesMap(CATEGORY_TENANT_ID, requestInfo);
+		if (null == cached || !cached.equals(reloaded))
+			nextRateVersion(CATEGORY_TENANT_ID);
+	}
+
+	private long nextRateVersion(String tenantId) {
+		return rateVersions.computeIfAbsent(tenantId, key -> new AtomicLong()).incrementAndGet();
+	}
+
+	private Cache getCache(String cacheName) {
+		return cacheManager.getCache(cacheName);
+	}
+
+	private Set<String> getCachedKeys(String cacheName) {
+
+		Set<String> keys = new HashSet<>();
+		Cache cache = getCache(cacheName);
+		if (cache instanceof CaffeineCache)
+			((CaffeineCache) cache).getNativeCache().asMap().keySet().forEach(key -> keys.add(String.valueOf(key)));
+		return keys;
+	}
+
+}
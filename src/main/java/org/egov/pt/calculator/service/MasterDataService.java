@@ -1,11 +1,12 @@
 package org.egov.pt.calculator.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.JsonPath;
 import net.minidev.json.JSONArray;
 import org.egov.common.contract.request.RequestInfo;
 import org.egov.mdms.model.MdmsCriteriaReq;
 import org.egov.mdms.model.MdmsResponse;
+import org.egov.pt.calculator.model.ApplicableSchedule;
+import org.egov.pt.calculator.model.MasterSnapshot;
 import org.egov.pt.calculator.repository.Repository;
 import org.egov.pt.calculator.util.CalculatorConstants;
 import org.egov.pt.calculator.util.CalculatorUtils;
@@ -19,10 +20,9 @@ import org.egov.pt.calculator.web.models.property.RequestInfoWrapper;
 import org.egov.tracer.model.CustomException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
 
 import java.math.BigDecimal;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
@@ -35,9 +35,6 @@ public class MasterDataService {
 	@Autowired
 	private Repository repository;
 
-	@Autowired
-	private ObjectMapper mapper;
-
 	@Autowired
 	private CalculatorUtils calculatorUtils;
 
@@ -57,7 +54,7 @@ public class MasterDataService {
 
 		MdmsCriteriaReq mdmsCriteriaReq = calculatorUtils.getFinancialYearRequest(requestInfo, assessmentYear, tenantId);
 		StringBuilder url = calculatorUtils.getMdmsSearchUrl();
-		MdmsResponse res = mapper.convertValue(repository.fetchResult(url, mdmsCriteriaReq), MdmsResponse.class);
+		MdmsResponse res = repository.fetchResult(url, mdmsCriteriaReq, MdmsResponse.class);
 		try {
 			return (Map<String, Object>) res.getMdmsRes().get(CalculatorConstants.FINANCIAL_MODULE)
 					.get(CalculatorConstants.FINANCIAL_YEAR_MASTER).get(0);
@@ -101,9 +98,8 @@ public class MasterDataService {
 	public List<TaxHeadMaster> getTaxHeadMasterMap(RequestInfo requestInfo, String tenantId) {
 
 		StringBuilder uri = calculatorUtils.getTaxHeadSearchUrl(tenantId);
-		TaxHeadMasterResponse res = mapper.convertValue(
-				repository.fetchResult(uri, RequestInfoWrapper.builder().requestInfo(requestInfo).build()),
-				TaxHeadMasterResponse.class);
+		TaxHeadMasterResponse res = repository.fetchResult(uri,
+				RequestInfoWrapper.builder().requestInfo(requestInfo).build(), TaxHeadMasterResponse.class);
 		return res.getTaxHeadMasters();
 	}
 
@@ -116,9 +112,8 @@ public class MasterDataService {
 	public List<TaxPeriod> getTaxPeriodList(RequestInfo requestInfo, String tenantId) {
 
 		StringBuilder uri = calculatorUtils.getTaxPeriodSearchUrl(tenantId);
-		TaxPeriodResponse res = mapper.convertValue(
-				repository.fetchResult(uri, RequestInfoWrapper.builder().requestInfo(requestInfo).build()),
-				TaxPeriodResponse.class);
+		TaxPeriodResponse res = repository.fetchResult(uri,
+				RequestInfoWrapper.builder().requestInfo(requestInfo).build(), TaxPeriodResponse.class);
 		return res.getTaxPeriods();
 	}
 
@@ -131,8 +126,8 @@ public class MasterDataService {
 	public void setPropertyMasterValues(RequestInfo requestInfo, String tenantId,
 			Map<String, Map<String, List<Object>>> propertyBasedExemptionMasterMap, Map<String, JSONArray> timeBasedExemptionMasterMap) {
 
-		MdmsResponse response = mapper.convertValue(repository.fetchResult(calculatorUtils.getMdmsSearchUrl(),
-				calculatorUtils.getPropertyModuleRequest(requestInfo, tenantId)), MdmsResponse.class);
+		MdmsResponse response = repository.fetchResult(calculatorUtils.getMdmsSearchUrl(),
+				calculatorUtils.getPropertyModuleRequest(requestInfo, tenantId), MdmsResponse.class);
 		Map<String, JSONArray> res = response.getMdmsRes().get(CalculatorConstants.PROPERTY_TAX_MODULE);
 		for (Entry<String, JSONArray> entry : res.entrySet()) {
 
@@ -187,61 +182,10 @@ public class MasterDataService {
 	 * @param assessmentYear
 	 * @param masterList
 	 */
-	@SuppressWarnings("unchecked")
 	public Map<String, Object> getApplicableMaster(String assessmentYear, List<Object> masterList) {
-
-		Map<String, Object> objToBeReturned = null;
-		String maxYearFromTheList = "0";
-		Long maxStartTime = 0l;
-
-		for (Object object : masterList) {
-
-			Map<String, Object> objMap = (Map<String, Object>) object;
-			String objFinYear = ((String) objMap.get(CalculatorConstants.FROMFY_FIELD_NAME)).split("-")[0];
-			if(!objMap.containsKey(CalculatorConstants.STARTING_DATE_APPLICABLES)){
-				if (objFinYear.compareTo(assessmentYear.split("-")[0]) == 0)
-					return  objMap;
-
-				else if (assessmentYear.split("-")[0].compareTo(objFinYear) > 0 && maxYearFromTheList.compareTo(objFinYear) <= 0) {
-					maxYearFromTheList = objFinYear;
-					objToBeReturned = objMap;
-				}
-			}
-			else{
-				String objStartDay = ((String) objMap.get(CalculatorConstants.STARTING_DATE_APPLICABLES));
-				if (assessmentYear.split("-")[0].compareTo(objFinYear) >= 0 && maxYearFromTheList.compareTo(objFinYear) <= 0) {
-					maxYearFromTheList = objFinYear;
-					Long startTime = getStartDayInMillis(objStartDay);
-					Long currentTime = System.currentTimeMillis();
-					if(startTime < currentTime && maxStartTime < startTime){
-						objToBeReturned = objMap;
-						maxStartTime = startTime;
-					}
-				}
-			}
-		}
-		return objToBeReturned;
+		return ApplicableSchedule.scan(assessmentYear, masterList, System.currentTimeMillis());
 	}
 
-	/**
-	 * Converts startDay to epoch
-	 * @param startDay StartDay of applicable
-	 * @return
-	 */
-	private Long getStartDayInMillis(String startDay){
-
-		Long startTime = null;
-		try{
-			SimpleDateFormat df = new SimpleDateFormat("dd/MM/yyyy");
-			Date date = df.parse(startDay);
-			startTime = date.getTime();
-		}
-		catch (ParseException e) {
-			throw new CustomException("INVALID STARTDAY","The startDate of the penalty cannot be parsed");
-		}
-
-		return startTime;
-	}
 	/**
 	 * Estimates the fire cess that needs to be paid for the given tax amount
 	 *
@@ -309,25 +253,37 @@ public class MasterDataService {
 	}
 
 	/**
-	 * Fetches and creates map of all required masters
+	 * Resolves the masters needed for all the criteria of the calculation request
 	 * @param request The calculation request
 	 * @return
 	 */
-	public Map<String,Object> getMasterMap(CalculationReq request){
-		RequestInfo requestInfo = request.getRequestInfo();
+	public MasterSnapshot getMasterSnapshot(CalculationReq request){
 		String tenantId = request.getCalculationCriteria().get(0).getTenantId();
 		Set<String> assessmentYears = request.getCalculationCriteria().stream().map(cal -> cal.getProperty().getPropertyDetails().get(0).getFinancialYear())
 				.collect(Collectors.toSet());
-		Map<String,Object> masterMap = new HashMap<>();
+		return getMasterSnapshot(request.getRequestInfo(), tenantId, assessmentYears);
+	}
+
+	/**
+	 * Fetches tax periods, tax heads, financial years and the property masters of the tenant once
+	 *
+	 * @param requestInfo
+	 * @param tenantId
+	 * @param assessmentYears financial years to be resolved, can be empty
+	 * @return
+	 */
+	public MasterSnapshot getMasterSnapshot(RequestInfo requestInfo, String tenantId, Set<String> assessmentYears){
 		List<TaxPeriod> taxPeriods = getTaxPeriodList(requestInfo,tenantId);
 		List<TaxHeadMaster> taxHeadMasters = getTaxHeadMasterMap(requestInfo,tenantId);
-		Map<String,Map<String, Object>> financialYearMaster = getFinancialYear(tenantId,requestInfo,assessmentYears);
+		Map<String,Map<String, Object>> financialYearMaster = CollectionUtils.isEmpty(assessmentYears) ? new HashMap<>()
+				: getFinancialYear(tenantId,requestInfo,assessmentYears);
 
-		masterMap.put(TAXPERIOD_MASTER_KEY,taxPeriods);
-		masterMap.put(TAXHEADMASTER_MASTER_KEY,taxHeadMasters);
-		masterMap.put(FINANCIALYEAR_MASTER_KEY,financialYearMaster);
+		Map<String, Map<String, List<Object>>> propertyBasedExemptionMasterMap = new HashMap<>();
+		Map<String, JSONArray> timeBasedExemptionMasterMap = new HashMap<>();
+		setPropertyMasterValues(requestInfo, tenantId, propertyBasedExemptionMasterMap, timeBasedExemptionMasterMap);
 
-		return masterMap;
+		return new MasterSnapshot(tenantId, taxPeriods, taxHeadMasters, financialYearMaster,
+				propertyBasedExemptionMasterMap, timeBasedExemptionMasterMap);
 	}
 
 }
@@ -4,6 +4,8 @@ import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
+import org.egov.pt.calculator.model.ApplicableSchedule;
+import org.egov.pt.calculator.model.MasterSnapshot;
 import org.egov.pt.calculator.util.CalculatorConstants;
 import org.egov.pt.calculator.util.CalculatorUtils;
 import org.egov.pt.calculator.web.models.TaxHeadEstimate;
@@ -13,8 +15,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import net.minidev.json.JSONArray;
-
 import static org.egov.pt.calculator.util.CalculatorConstants.TIMEZONE_OFFSET;
 import static org.egov.pt.calculator.util.CalculatorUtils.getEODEpoch;
 
@@ -43,10 +43,11 @@ public class PayService {
 	 * If the demand details are not already present then new demand details will be added
 	 * 
 	 * @param assessmentYear
+	 * @param masterSnapshot masters containing the rebate, penalty and interest configurations
 	 * @return
 	 */
 	public Map<String, BigDecimal> applyPenaltyRebateAndInterest(BigDecimal taxAmt,BigDecimal collectedPtTax,
-			 String assessmentYear, Map<String, JSONArray> timeBasedExmeptionMasterMap,List<Payment> payments,TaxPeriod taxPeriod) {
+			 String assessmentYear, MasterSnapshot masterSnapshot,List<Payment> payments,TaxPeriod taxPeriod) {
 
 		if (BigDecimal.ZERO.compareTo(taxAmt) >= 0)
 			return null;
@@ -54,14 +55,14 @@ public class PayService {
 		Map<String, BigDecimal> estimates = new HashMap<>();
 
 		BigDecimal rebate = getRebate(taxAmt, assessmentYear,
-				timeBasedExmeptionMasterMap.get(CalculatorConstants.REBATE_MASTER));
+				masterSnapshot.getTimeBasedSchedule(CalculatorConstants.REBATE_MASTER));
 
 		BigDecimal penalty = BigDecimal.ZERO;
 		BigDecimal interest = BigDecimal.ZERO;
 
 		if (rebate.equals(BigDecimal.ZERO)) {
-			penalty = getPenalty(taxAmt, assessmentYear, timeBasedExmeptionMasterMap.get(CalculatorConstants.PENANLTY_MASTER));
-			interest = getInterest(taxAmt, assessmentYear, timeBasedExmeptionMasterMap.get(CalculatorConstants.INTEREST_MASTER),
+			penalty = getPenalty(taxAmt, assessmentYear, masterSnapshot.getTimeBasedSchedule(CalculatorConstants.PENANLTY_MASTER));
+			interest = getInterest(taxAmt, assessmentYear, masterSnapshot.getTimeBasedSchedule(CalculatorConstants.INTEREST_MASTER),
 					payments,taxPeriod);
 		}
 
@@ -79,21 +80,21 @@ public class PayService {
 	 * 
 	 * @param taxAmt
 	 * @param assessmentYear
+	 * @param rebateSchedule compiled rebate master, null if the tenant has none
 	 * @return
 	 */
-	public BigDecimal getRebate(BigDecimal taxAmt, String assessmentYear, JSONArray rebateMasterList) {
+	public BigDecimal getRebate(BigDecimal taxAmt, String assessmentYear, ApplicableSchedule rebateSchedule) {
 
 		BigDecimal rebateAmt = BigDecimal.ZERO;
-		Map<String, Object> rebate = mDService.getApplicableMaster(assessmentYear, rebateMasterList);
+		if (null == rebateSchedule) return rebateAmt;
 
-		if (null == rebate) return rebateAmt;
+		long currentTime = System.currentTimeMillis();
+		ApplicableSchedule.Entry rebate = rebateSchedule.getApplicable(assessmentYear, currentTime);
 
-		String[] time = ((String) rebate.get(CalculatorConstants.STARTING_DATE_APPLICABLES)).split("/");
-		Calendar cal = Calendar.getInstance();
-		setDateToCalendar( time, cal);
+		if (null == rebate) return rebateAmt;
 
-		if (cal.getTimeInMillis() < System.currentTimeMillis())
-			rebateAmt = mDService.calculateApplicables(taxAmt, rebate);
+		if (rebate.getStartMillis() < currentTime)
+			rebateAmt = mDService.calculateApplicables(taxAmt, rebate.getMaster());
 
 		return rebateAmt;
 	}
@@ -103,21 +104,22 @@ public class PayService {
 	 * 
 	 * @param taxAmt
 	 * @param assessmentYear
+	 * @param penaltySchedule compiled penalty master, null if the tenant has none
 	 * @return
 	 */
-	public BigDecimal getPenalty(BigDecimal taxAmt, String assessmentYear, JSONArray penaltyMasterList) {
+	public BigDecimal getPenalty(BigDecimal taxAmt, String assessmentYear, ApplicableSchedule penaltySchedule) {
 
 		BigDecimal penaltyAmt = BigDecimal.ZERO;
-		Map<String, Object> penalty = mDService.getApplicableMaster(assessmentYear, penaltyMasterList);
+		if (null == penaltySchedule) return penaltyAmt;
+
+		long currentUTC = System.currentTimeMillis();
+		ApplicableSchedule.Entry penalty = penaltySchedule.getApplicable(assessmentYear, currentUTC);
 		if (null == penalty) return penaltyAmt;
 
-		String[] time = getStartTime(assessmentYear,penalty);
-		Calendar cal = Calendar.getInstance();
-		setDateToCalendar(time, cal);
-		Long currentIST = System.currentTimeMillis()+TIMEZONE_OFFSET;
+		long currentIST = currentUTC + TIMEZONE_OFFSET;
 
-		if (cal.getTimeInMillis() < currentIST)
-			penaltyAmt = mDService.calculateApplicables(taxAmt, penalty);
+		if (penalty.getStartMillis(assessmentYear) < currentIST)
+			penaltyAmt = mDService.calculateApplicables(taxAmt, penalty.getMaster());
 
 		return penaltyAmt;
 	}
@@ -127,23 +129,24 @@ public class PayService {
 	 * 
 	 * @param taxAmt
 	 * @param assessmentYear
+	 * @param interestSchedule compiled interest master, null if the tenant has none
 	 * @return
 	 */
 	public BigDecimal getInterest(BigDecimal taxAmt, String assessmentYear,
-								  JSONArray interestMasterList, List<Payment> payments,TaxPeriod taxPeriod) {
+								  ApplicableSchedule interestSchedule, List<Payment> payments,TaxPeriod taxPeriod) {
 
 		BigDecimal interestAmt = BigDecimal.ZERO;
-		Map<String, Object> interestMap = mDService.getApplicableMaster(assessmentYear, interestMasterList);
-		if (null == interestMap)
+		if (null == interestSchedule)
 			return interestAmt;
 
-		String[] time = getStartTime(assessmentYear,interestMap);
-
-		Calendar cal = Calendar.getInstance();
-		setDateToCalendar(time, cal);
 		long currentUTC = System.currentTimeMillis();
-		long currentIST= System.currentTimeMillis()+TIMEZONE_OFFSET;
-		long interestStart = cal.getTimeInMillis();
+		ApplicableSchedule.Entry interest = interestSchedule.getApplicable(assessmentYear, currentUTC);
+		if (null == interest)
+			return interestAmt;
+
+		Map<String, Object> interestMap = interest.getMaster();
+		long currentIST= currentUTC+TIMEZONE_OFFSET;
+		long interestStart = interest.getStartMillis(assessmentYear);
 
 		if(interestStart < currentIST){
 
@@ -271,24 +274,6 @@ public class PayService {
 	}
 
 
-	/**
-	 * Overloaded method
-	 * Sets the date in to calendar based on the month and date value present in the time array*
-	 * @param time
-	 * @param cal
-	 */
-	private void setDateToCalendar(String[] time, Calendar cal) {
-
-		cal.clear();
-		TimeZone timeZone = TimeZone.getTimeZone("Asia/Kolkata");
-		cal.setTimeZone(timeZone);
-		Integer day = Integer.valueOf(time[0]);
-		Integer month = Integer.valueOf(time[1])-1;
-		// One is subtracted because calender reads january as 0
-		Integer year = Integer.valueOf(time[2]);
-		cal.set(year, month, day);
-	}
-
 	/**
 	 * Decimal is ceiled for all the tax heads
 	 * 
@@ -345,29 +330,6 @@ public class PayService {
 	}
 
 
-	/**
-	 * Fetch the fromFY and take the starting year of financialYear
-	 * calculate the difference between the start of assessment financial year and fromFY
-	 * Add the difference in year to the year in the starting day
-	 * eg: Assessment year = 2017-18 and interestMap fetched from master due to fallback have fromFY = 2015-16
-	 * and startingDay = 01/04/2016. Then diff = 2017-2015 = 2
-	 * Therefore the starting day will be modified from 01/04/2016 to 01/04/2018
-	 * @param assessmentYear Year of the assessment
-	 * @param interestMap The applicable master data
-	 * @return list of string with 0'th element as day, 1'st as month and 2'nd as year
-	 */
-	private String[] getStartTime(String assessmentYear,Map<String, Object> interestMap){
-		String financialYearOfApplicableEntry = ((String) interestMap.get(CalculatorConstants.FROMFY_FIELD_NAME)).split("-")[0];
-		Integer diffInYear = Integer.valueOf(assessmentYear.split("-")[0]) - Integer.valueOf(financialYearOfApplicableEntry);
-		String startDay = ((String) interestMap.get(CalculatorConstants.STARTING_DATE_APPLICABLES));
-		Integer yearOfStartDayInApplicableEntry = Integer.valueOf((startDay.split("/")[2]));
-		startDay = startDay.replace(String.valueOf(yearOfStartDayInApplicableEntry),String.valueOf(yearOfStartDayInApplicableEntry+diffInYear));
-		String[] time = startDay.split("/");
-		return time;
-	}
-
-
-
 	/**
 	 * Calculates the interest based on the given parameters
 	 * @param numberOfDaysInMillies Time for which interest has to be calculated
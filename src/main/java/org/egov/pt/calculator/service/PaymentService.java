@@ -1,6 +1,5 @@
 package org.egov.pt.calculator.service;
 
-
 import static org.egov.pt.calculator.util.CalculatorConstants.ALLOWED_RECEIPT_STATUS;
 import static org.egov.pt.calculator.util.CalculatorConstants.CONSUMER_CODE_SEARCH_FIELD_NAME_PAYMENT;
 import static org.egov.pt.calculator.util.CalculatorConstants.SEPARATER;
@@ -8,14 +7,20 @@ import static org.egov.pt.calculator.util.CalculatorConstants.STATUS_FIELD_FOR_S
 import static org.egov.pt.calculator.util.CalculatorConstants.TENANT_ID_FIELD_FOR_SEARCH_URL;
 import static org.egov.pt.calculator.util.CalculatorConstants.URL_PARAMS_SEPARATER;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.egov.pt.calculator.repository.Repository;
 import org.egov.pt.calculator.util.CalculatorConstants;
 import org.egov.pt.calculator.util.Configurations;
 import org.egov.pt.calculator.web.models.collections.Payment;
+import org.egov.pt.calculator.web.models.collections.PaymentDetail;
 import org.egov.pt.calculator.web.models.collections.PaymentResponse;
 import org.egov.pt.calculator.web.models.collections.PaymentSearchCriteria;
 import org.egov.pt.calculator.web.models.demand.Demand;
@@ -25,7 +30,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class PaymentService {
@@ -34,9 +38,6 @@ public class PaymentService {
 	@Autowired
     private Repository repository;
 
-	@Autowired
-    private ObjectMapper mapper;
-
     @Autowired
     private Configurations configurations;
 
@@ -77,6 +78,48 @@ public class PaymentService {
 
 
 
+    /**
+     * Gets the payments of all the given consumer codes with one search per chunk of consumer codes
+     *
+     * The payments are sorted by transaction date once and grouped by the consumer codes of their bills,
+     * a consumer code without any payment is mapped to an empty list
+     * @param tenantId
+     * @param consumerCodes
+     * @param requestInfoWrapper
+     * @return
+     */
+    public Map<String, List<Payment>> getPaymentsByConsumerCodes(String tenantId, Collection<String> consumerCodes,
+            RequestInfoWrapper requestInfoWrapper) {
+
+        Map<String, List<Payment>> paymentsByConsumerCode = new HashMap<>();
+        consumerCodes.forEach(consumerCode -> paymentsByConsumerCode.put(consumerCode, new ArrayList<>()));
+
+        List<String> distinctConsumerCodes = new ArrayList<>(paymentsByConsumerCode.keySet());
+        int chunkSize = configurations.getPaymentSearchChunkSize();
+        List<Payment> payments = new ArrayList<>();
+
+        for (int from = 0; from < distinctConsumerCodes.size(); from += chunkSize) {
+            PaymentSearchCriteria criteria = new PaymentSearchCriteria();
+            criteria.setTenantId(tenantId);
+            criteria.setConsumerCodes(new HashSet<>(
+                    distinctConsumerCodes.subList(from, Math.min(from + chunkSize, distinctConsumerCodes.size()))));
+            List<Payment> chunk = getPayments(criteria, requestInfoWrapper);
+            if (!CollectionUtils.isEmpty(chunk))
+                payments.addAll(chunk);
+        }
+
+        payments.sort(Comparator.comparing(payment -> payment.getTransactionDate()));
+        for (Payment payment : payments) {
+            if (CollectionUtils.isEmpty(payment.getPaymentDetails()))
+                continue;
+            payment.getPaymentDetails().stream().map(PaymentDetail::getBill)
+                    .filter(bill -> null != bill && paymentsByConsumerCode.containsKey(bill.getConsumerCode()))
+                    .map(bill -> bill.getConsumerCode()).distinct()
+                    .forEach(consumerCode -> paymentsByConsumerCode.get(consumerCode).add(payment));
+        }
+        return paymentsByConsumerCode;
+    }
+
     /**
      * Fetches the payments for the given params
      * @param criteria
@@ -85,7 +128,7 @@ public class PaymentService {
      */
     public List<Payment> getPayments(PaymentSearchCriteria criteria, RequestInfoWrapper requestInfoWrapper) {
         StringBuilder url = getPaymentSearchUrl(criteria);
-        return mapper.convertValue(repository.fetchResult(url, requestInfoWrapper), PaymentResponse.class).getPayments();
+        return repository.fetchResult(url, requestInfoWrapper, PaymentResponse.class).getPayments();
     }
     
     /**
@@ -102,7 +145,7 @@ public class PaymentService {
                 .append(configurations.getPaymentSearchEndpoint()).append(URL_PARAMS_SEPARATER)
                 .append(TENANT_ID_FIELD_FOR_SEARCH_URL).append(criteria.getTenantId())
                 .append(SEPARATER).append(CONSUMER_CODE_SEARCH_FIELD_NAME_PAYMENT)
-                .append(criteria.getConsumerCodes())
+                .append(String.join(",", criteria.getConsumerCodes()))
                 .append(CalculatorConstants.SEPARATER).append(STATUS_FIELD_FOR_SEARCH_URL)
                 .append(ALLOWED_RECEIPT_STATUS);
     }
@@ -0,0 +1,105 @@
+package org.egov.pt.calculator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.egov.pt.calculator.model.PropertyPayment;
+import org.egov.pt.calculator.repository.PropertyPaymentRepository;
+import org.egov.pt.calculator.util.Configurations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the computed taxes of the estimated properties behind the requests and serves them back
+ * while the property and rate inputs they were computed from are unchanged
+ *
+ * Payments are queued by the estimates and written by the scheduler in jdbc batches. The snapshot
+ * is only an optimisation, a full queue drops the payment and a failed read or write is logged and
+ * the taxes are computed again.
+ */
+@Service
+@Slf4j
+public class PaymentSnapshotService {
+
+	@Autowired
+	private PropertyPaymentRepository propertyPaymentRepository;
+
+	@Autowired
+	private Configurations configs;
+
+	private BlockingQueue<PropertyPayment> pending;
+
+	@PostConstruct
+	public void init() {
+		pending = new LinkedBlockingQueue<>(configs.getPaymentSnapshotQueueCapacity());
+	}
+
+	/**
+	 * Returns the stored payment of the property and financial year if it was computed from the same inputs
+	 *
+	 * @param propertyId id of the property
+	 * @param financialYear financial year of the assessment
+	 * @param inputHash fingerprint of the current inputs of the property
+	 */
+	public Optional<PropertyPayment> findUnchanged(String propertyId, String financialYear, String inputHash) {
+
+		if (!configs.getPaymentSnapshotEnabled() || StringUtils.isEmpty(propertyId) || StringUtils.isEmpty(financialYear))
+			return Optional.empty();
+		try {
+			return propertyPaymentRepository.findByPropertyIdAndFinancialYear(propertyId, financialYear)
+					.filter(payment -> inputHash.equals(payment.getInputHash()));
+		} catch (DataAccessException e) {
+			log.warn("Payment snapshot lookup failed for property {} : {}", propertyId, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Queues the payment to be written with the next batch
+	 *
+	 * @param payment computed payment carrying its input hash
+	 */
+	public void saveLater(PropertyPayment payment) {
+
+		if (!configs.getPaymentSnapshotEnabled() || StringUtils.isEmpty(payment.getPropertyId())
+				|| StringUtils.isEmpty(payment.getFinancialYear()))
+			return;
+		if (!pending.offer(payment))
+			log.warn("Payment snapshot queue is full, dropping the payment of property {}", payment.getPropertyId());
+	}
+
+	/**
+	 * Writes the queued payments in batches of the configured size
+	 */
+	@Scheduled(initialDelayString = "${pt.payment.snapshot.flush.interval.millis:1000}",
+			fixedDelayString = "${pt.payment.snapshot.flush.interval.millis:1000}")
+	public void flush() {
+
+		List<PropertyPayment> payments = new ArrayList<>(configs.getPaymentSnapshotBatchSize());
+		while (pending.drainTo(payments, configs.getPaymentSnapshotBatchSize()) > 0) {
+			try {
+				propertyPaymentRepository.saveAll(payments);
+			} catch (DataAccessException e) {
+				log.error("Writing {} payment snapshots failed : {}", payments.size(), e.getMessage());
+			}
+			payments.clear();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		flush();
+	}
+
+}
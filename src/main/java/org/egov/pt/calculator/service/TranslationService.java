@@ -220,7 +220,7 @@ public class TranslationService {
         url.append("propertyIds=");
         url.append(assessmentV2.getPropertyId());
 
-        PropertyResponseV2 propertyResponseV2 = mapper.convertValue(repository.fetchResult(url, requestInfoWrapper), PropertyResponseV2.class);
+        PropertyResponseV2 propertyResponseV2 = repository.fetchResult(url, requestInfoWrapper, PropertyResponseV2.class);
 
         if(CollectionUtils.isEmpty(propertyResponseV2.getProperties()))
             throw new CustomException("INVALID_REQUEST", "The propertyId: "+assessmentRequestV2.getAssessment().getPropertyId()+" is not found in the system");
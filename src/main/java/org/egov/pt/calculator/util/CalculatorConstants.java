@@ -208,6 +208,12 @@ public class CalculatorConstants {
 
 	public static final String ASSESSMENTNUMBER_FIELD_SEARCH = "propertyDetailids=";
 
+	public static final String LOCALITY_FIELD_SEARCH = "locality=";
+
+	public static final String OFFSET_FIELD_SEARCH = "offset=";
+
+	public static final String LIMIT_FIELD_SEARCH = "limit=";
+
 	public static final String MDMS_FINACIALYEAR_PATH = "$.MdmsRes.egf-master.FinancialYear[?(@.code==\"{}\")]";
 
 	public static final String FINANCIALYEAR_MASTER_KEY = "FINANCIALYEAR";
@@ -239,6 +245,58 @@ public class CalculatorConstants {
 
 			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
+	public static final String QUERY_CALCULATION_BATCH_INSERT = "INSERT INTO eg_pt_calculation_batch (batchid, tenantid, locality, financialyear,"
+			+ " processedoffset, processed, failed, status, createdtime, lastmodifiedtime)"
+			+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	public static final String QUERY_CALCULATION_BATCH_UPDATE = "UPDATE eg_pt_calculation_batch SET processedoffset = ?, processed = ?,"
+			+ " failed = ?, status = ?, throughput = ?, lastmodifiedtime = ? WHERE batchid = ?";
+
+	public static final String QUERY_CALCULATION_BATCH_SEARCH = "SELECT * FROM eg_pt_calculation_batch WHERE batchid = ?";
+
+	public static final String QUERY_CALCULATION_BATCH_CLAIM = "UPDATE eg_pt_calculation_batch SET status = ?, lastmodifiedtime = ?"
+			+ " WHERE batchid = ? AND status <> ? AND (status <> ? OR lastmodifiedtime < ?)";
+
+	public static final String QUERY_PROPERTY_PAYMENT_UPSERT = "INSERT INTO eg_pt_property_payment (id, propertyid, financialyear,"
+			+ " arrearhousetax, arrearwatertax, arrearsewertax, housetax, watertax, sewertax, surcharehousetax, surcharewatertax,"
+			+ " surcharesewertax, billgeneratedtotal, totalpaidamount, lastpaymentdate, inputhash, lastmodifiedtime)"
+			+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+			+ " ON CONFLICT (propertyid, financialyear) DO UPDATE SET arrearhousetax = EXCLUDED.arrearhousetax,"
+			+ " arrearwatertax = EXCLUDED.arrearwatertax, arrearsewertax = EXCLUDED.arrearsewertax, housetax = EXCLUDED.housetax,"
+			+ " watertax = EXCLUDED.watertax, sewertax = EXCLUDED.sewertax, surcharehousetax = EXCLUDED.surcharehousetax,"
+			+ " surcharewatertax = EXCLUDED.surcharewatertax, surcharesewertax = EXCLUDED.surcharesewertax,"
+			+ " billgeneratedtotal = EXCLUDED.billgeneratedtotal, totalpaidamount = EXCLUDED.totalpaidamount,"
+			+ " lastpaymentdate = EXCLUDED.lastpaymentdate, inputhash = EXCLUDED.inputhash, lastmodifiedtime = EXCLUDED.lastmodifiedtime"
+			// migrated rows carry no input hash and keep their arrears and payments
+			+ " WHERE eg_pt_property_payment.inputhash IS NOT NULL";
+
+	private static final String PROPERTY_PAYMENT_COLUMNS = "SELECT id, propertyid, financialyear, arrearhousetax, arrearwatertax,"
+			+ " arrearsewertax, housetax, watertax, sewertax, surcharehousetax, surcharewatertax, surcharesewertax,"
+			+ " billgeneratedtotal, totalpaidamount, lastpaymentdate, inputhash FROM eg_pt_property_payment";
+
+	public static final String QUERY_PROPERTY_PAYMENT_SEARCH = PROPERTY_PAYMENT_COLUMNS
+			+ " WHERE propertyid = ? AND financialyear = ?";
+
+	/** migrated rows are the ones without an input hash, the calculator writes its rows with one */
+	public static final String QUERY_PROPERTY_PAYMENT_MIGRATED_SEARCH = PROPERTY_PAYMENT_COLUMNS
+			+ " WHERE propertyid = ? AND financialyear = ? AND inputhash IS NULL";
+
+	public static final String QUERY_PROPERTY_PAYMENT_MIGRATED_LATEST = PROPERTY_PAYMENT_COLUMNS
+			+ " WHERE propertyid = ? AND inputhash IS NULL ORDER BY financialyear DESC LIMIT 1";
+
+	/*
+	 * master caches
+	 */
+
+	public static final String CATEGORIES_CACHE = "categories";
+
+	public static final String LOCALITY_RATES_CACHE = "localitiesRoadWidth";
+
+	public static final String TAX_RESULTS_CACHE = "propertyTaxResults";
+
+	/** the categories are maintained once for the state and cached under the state tenant */
+	public static final String CATEGORY_TENANT_ID = "up";
+
 	/*
 	 * exceptions
 	 */
@@ -304,6 +362,70 @@ public class CalculatorConstants {
 	public static final String EG_PT_INVALID_DEMAND_ERROR = "EG_PT_INVALID_DEMAND_ERROR";
 	public static final String EG_PT_INVALID_DEMAND_ERROR_MSG = " Bill cannot be generated for previous assessments in a year, please use the latest assesmment to pay";
 
+	public static final String EG_PT_LOCALITY_RATE_NOT_FOUND = "EG_PT_LOCALITY_RATE_NOT_FOUND";
+	public static final String EG_PT_LOCALITY_RATE_NOT_FOUND_MSG = "No base rates are configured for the locality : ";
+
+	public static final String EG_PT_ROADWIDTH_RATE_NOT_FOUND = "EG_PT_ROADWIDTH_RATE_NOT_FOUND";
+	public static final String EG_PT_ROADWIDTH_RATE_NOT_FOUND_MSG = "No base rates are configured in the locality for the road width : ";
+
+	public static final String EG_PT_TENANT_RATES_NOT_FOUND = "EG_PT_TENANT_RATES_NOT_FOUND";
+	public static final String EG_PT_TENANT_RATES_NOT_FOUND_MSG = "Locality base rates could not be loaded from mdms for the tenant : ";
+
+	public static final String EG_PT_CATEGORIES_NOT_FOUND = "EG_PT_CATEGORIES_NOT_FOUND";
+	public static final String EG_PT_CATEGORIES_NOT_FOUND_MSG = "Property categories could not be loaded from mdms for the tenant : ";
+
+	public static final String EG_PT_INVALID_CATEGORY_MULTIPLIER = "EG_PT_INVALID_CATEGORY_MULTIPLIER";
+	public static final String EG_PT_INVALID_CATEGORY_MULTIPLIER_MSG = "The multiplier configured for the category is not a number : ";
+
+	public static final String EG_PT_DOWNSTREAM_TIMEOUT = "EG_PT_DOWNSTREAM_TIMEOUT";
+	public static final String EG_PT_DOWNSTREAM_TIMEOUT_MSG = "No response received in time from : ";
+
+	public static final String EG_PT_DOWNSTREAM_FAILED = "EG_PT_DOWNSTREAM_FAILED";
+	public static final String EG_PT_DOWNSTREAM_FAILED_MSG = "Call failed to : ";
+
+	public static final String EG_PT_DOWNSTREAM_UNAVAILABLE = "EG_PT_DOWNSTREAM_UNAVAILABLE";
+	public static final String EG_PT_DOWNSTREAM_UNAVAILABLE_MSG = "Calls are suspended after repeated failures of : ";
+
+	public static final String EG_PT_DOWNSTREAM_BUSY = "EG_PT_DOWNSTREAM_BUSY";
+	public static final String EG_PT_DOWNSTREAM_BUSY_MSG = "Too many calls in progress to : ";
+
+	public static final String EG_PT_BILL_GENERATION_FAILED = "EG_PT_BILL_GENERATION_FAILED";
+	public static final String EG_PT_BILL_GENERATION_FAILED_MSG = "No bill returned by billing-service";
+
+	public static final String EG_PT_BATCH_NOT_FOUND = "EG_PT_BATCH_NOT_FOUND";
+	public static final String EG_PT_BATCH_NOT_FOUND_MSG = "No calculation batch found for the batchId : ";
+
+	public static final String EG_PT_BATCH_ALREADY_RUNNING = "EG_PT_BATCH_ALREADY_RUNNING";
+	public static final String EG_PT_BATCH_ALREADY_RUNNING_MSG = "The calculation batch is already running : ";
+
+	public static final String EG_PT_BATCH_COMPLETED = "EG_PT_BATCH_COMPLETED";
+	public static final String EG_PT_BATCH_COMPLETED_MSG = "The calculation batch is already completed : ";
+
+	public static final String EG_PT_BATCH_INVALID_REQUEST = "EG_PT_BATCH_INVALID_REQUEST";
+	public static final String EG_PT_BATCH_INVALID_REQUEST_MSG = "tenantId and financialYear are mandatory to start a calculation batch";
+
+	public static final String EG_PT_BULK_ESTIMATE_INVALID_REQUEST = "EG_PT_BULK_ESTIMATE_INVALID_REQUEST";
+	public static final String EG_PT_BULK_ESTIMATE_INVALID_REQUEST_MSG = "A bulk estimate needs between 1 and {max} criteria of a single tenant";
+	public static final String EG_PT_BULK_ESTIMATE_INVALID_TENANT_MSG = "Every criteria of a bulk estimate needs the same tenantId, found : ";
+
+	public static final String EG_PT_BULK_ESTIMATE_FAILED = "EG_PT_BULK_ESTIMATE_FAILED";
+
+	public static final String EG_PT_DEMAND_WRITE_MISMATCH = "EG_PT_DEMAND_WRITE_MISMATCH";
+	public static final String EG_PT_DEMAND_WRITE_MISMATCH_MSG = "Billing service returned {returned} of the {sent} demands sent";
+
+	public static final String EG_PT_ENGINE_MISMATCH = "EG_PT_ENGINE_MISMATCH";
+	public static final String EG_PT_ENGINE_MISMATCH_MSG = "Fixed point and BigDecimal tax amounts differ for the tax heads : ";
+
+	public static final String CALCULATION_ENGINE_BIGDECIMAL = "BIGDECIMAL";
+
+	public static final String CALCULATION_ENGINE_FIXED_POINT = "FIXED_POINT";
+
+	public static final String CALCULATION_ENGINE_DIFFERENTIAL = "DIFFERENTIAL";
+
+	public static final String EG_PT_CACHE_INVALID_REQUEST = "EG_PT_CACHE_INVALID_REQUEST";
+
+	public static final String EG_PT_CACHE_INVALID_REQUEST_MSG = "tenantId is mandatory to evict or refresh the master caches";
+
     public static final Long TIMEZONE_OFFSET = 19800000l;
 
     public static final String BILLINGSLAB_KEY = "calculationDescription";
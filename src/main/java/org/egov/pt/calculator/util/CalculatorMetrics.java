@@ -0,0 +1,130 @@
+package org.egov.pt.calculator.util;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers and counters of the calculation stages, published through the actuator meter registry
+ *
+ * Every stage is timed under pt.calculation.stage tagged with the stage name and the simple
+ * name of the exception it failed with, None when it succeeded. The time is also added to the
+ * trace of the request when it is traced.
+ */
+@Component
+public class CalculatorMetrics {
+
+	public static final String STAGE_TIMER = "pt.calculation.stage";
+
+	public static final String STAGE_GET_CALCULATION = "getCalculation";
+
+	public static final String STAGE_CALCULATE_ALL_TAXES = "calculateAllTaxes";
+
+	public static final String STAGE_GENERATE_DEMANDS = "generateDemands";
+
+	public static final String STAGE_UPDATE_DEMANDS = "updateDemands";
+
+	public static final String STAGE_GET_BILL = "getBill";
+
+	public static final String STAGE_CONSUMER_POLL = "consumerPoll";
+
+	public static final String STAGE_MASTER_FETCH = "masterFetch";
+
+	public static final String STAGE_PAYMENT_SEARCH = "paymentSearch";
+
+	public static final String STAGE_DEMAND_SEARCH = "demandSearch";
+
+	public static final String STAGE_DEMAND_CREATE = "demandCreate";
+
+	public static final String STAGE_DEMAND_UPDATE = "demandUpdate";
+
+	public static final String DEMAND_WRITES_COUNTER = "pt.demand.writes";
+
+	public static final String DEMAND_WRITES_SUCCEEDED = "succeeded";
+
+	public static final String DEMAND_WRITES_FAILED = "failed";
+
+	public static final String CONSUMER_RECORDS_COUNTER = "pt.calculation.consumer.records";
+
+	public static final String CONSUMER_RECORDS_PROCESSED = "processed";
+
+	public static final String CONSUMER_RECORDS_IGNORED = "ignored";
+
+	public static final String CONSUMER_RECORDS_DEAD_LETTERED = "deadLettered";
+
+	private static final String NO_EXCEPTION = "None";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Runs the stage and records its duration
+	 *
+	 * @param stage name of the stage
+	 * @param call the stage to be run
+	 * @return result of the stage
+	 */
+	public <T> T time(String stage, Supplier<T> call) {
+
+		Timer.Sample sample = start();
+		String exception = NO_EXCEPTION;
+		try {
+			return call.get();
+		} catch (RuntimeException e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			stop(sample, stage, exception);
+		}
+	}
+
+	/**
+	 * Starts timing a stage which spans more than one call
+	 */
+	public Timer.Sample start() {
+		return Timer.start(meterRegistry);
+	}
+
+	/**
+	 * Records the duration of a stage started with {@link #start()}
+	 *
+	 * @param sample sample returned when the stage started
+	 * @param stage name of the stage
+	 * @param exception simple name of the exception the stage failed with, null when it succeeded
+	 */
+	public void stop(Timer.Sample sample, String stage, String exception) {
+		long nanos = sample.stop(Timer.builder(STAGE_TIMER)
+				.tag("stage", stage)
+				.tag("exception", null == exception ? NO_EXCEPTION : exception)
+				.register(meterRegistry));
+		RequestTrace.recordStage(stage, nanos);
+	}
+
+	/**
+	 * Counts records of the calculation consumer by what became of them
+	 *
+	 * @param result one of the CONSUMER_RECORDS_ results
+	 * @param count number of records
+	 */
+	public void countConsumerRecords(String result, int count) {
+		Counter.builder(CONSUMER_RECORDS_COUNTER).tag("result", result).register(meterRegistry).increment(count);
+	}
+
+	/**
+	 * Counts demands written to the billing service by operation and outcome
+	 *
+	 * @param operation create or update
+	 * @param result one of the DEMAND_WRITES_ results
+	 * @param count number of demands
+	 */
+	public void countDemandWrites(String operation, String result, int count) {
+		Counter.builder(DEMAND_WRITES_COUNTER).tag("operation", operation).tag("result", result).register(meterRegistry)
+				.increment(count);
+	}
+
+}
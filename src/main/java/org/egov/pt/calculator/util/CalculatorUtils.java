@@ -9,6 +9,9 @@ import static org.egov.pt.calculator.util.CalculatorConstants.DEMAND_ID_SEARCH_F
 import static org.egov.pt.calculator.util.CalculatorConstants.DEMAND_START_DATE_PARAM;
 import static org.egov.pt.calculator.util.CalculatorConstants.DEMAND_STATUS_ACTIVE;
 import static org.egov.pt.calculator.util.CalculatorConstants.DEMAND_STATUS_PARAM;
+import static org.egov.pt.calculator.util.CalculatorConstants.LIMIT_FIELD_SEARCH;
+import static org.egov.pt.calculator.util.CalculatorConstants.LOCALITY_FIELD_SEARCH;
+import static org.egov.pt.calculator.util.CalculatorConstants.OFFSET_FIELD_SEARCH;
 import static org.egov.pt.calculator.util.CalculatorConstants.PROPERTY_TAX_SERVICE_CODE;
 import static org.egov.pt.calculator.util.CalculatorConstants.PT_ADVANCE_CARRYFORWARD;
 import static org.egov.pt.calculator.util.CalculatorConstants.RECEIPT_END_DATE_PARAM;
@@ -22,6 +25,9 @@ import static org.egov.pt.calculator.util.CalculatorConstants.TENANT_ID_FIELD_FO
 import static org.egov.pt.calculator.util.CalculatorConstants.URL_PARAMS_SEPARATER;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -29,8 +35,10 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -46,11 +54,9 @@ import org.egov.mdms.model.MdmsCriteria;
 import org.egov.mdms.model.MdmsCriteriaReq;
 import org.egov.mdms.model.ModuleDetail;
 import org.egov.pt.calculator.repository.Repository;
-import org.egov.pt.calculator.service.PaymentService;
 import org.egov.pt.calculator.web.models.Assessment;
 import org.egov.pt.calculator.web.models.CalculationCriteria;
 import org.egov.pt.calculator.web.models.CalculationReq;
-import org.egov.pt.calculator.web.models.DemandDetailAndCollection;
 import org.egov.pt.calculator.web.models.DemandSearchCriteria;
 import org.egov.pt.calculator.web.models.GetBillCriteria;
 import org.egov.pt.calculator.web.models.ReceiptSearchCriteria;
@@ -72,8 +78,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import lombok.Getter;
 
 @Component
@@ -83,18 +87,12 @@ public class CalculatorUtils {
     @Autowired
     private Configurations configurations;
 
-    @Autowired
-    private PaymentService paymentService;
-
     @Value("${customization.allowdepreciationonnoreceipts:false}")
     Boolean allowDepreciationsOnNoReceipts;
 
     @Autowired
     private Repository repository;
 
-    @Autowired
-    private ObjectMapper mapper;
-
 
     private Map<String, Integer> taxHeadApportionPriorityMap;
 
@@ -324,7 +322,9 @@ public class CalculatorUtils {
                 .append(configurations.getDemandSearchEndPoint()).append(URL_PARAMS_SEPARATER)
                 .append(TENANT_ID_FIELD_FOR_SEARCH_URL).append(criteria.getTenantId())
                 .append(SEPARATER)
-                .append(CONSUMER_CODE_SEARCH_FIELD_NAME).append(criteria.getPropertyId())
+                .append(CONSUMER_CODE_SEARCH_FIELD_NAME)
+                .append(CollectionUtils.isEmpty(criteria.getConsumerCodes()) ? criteria.getPropertyId()
+                        : StringUtils.join(criteria.getConsumerCodes(), ","))
                 .append(SEPARATER)
                 .append(DEMAND_START_DATE_PARAM).append(criteria.getFromDate())
                 .append(SEPARATER)
@@ -333,21 +333,6 @@ public class CalculatorUtils {
                 .append(DEMAND_STATUS_PARAM).append(DEMAND_STATUS_ACTIVE);
     }
 
-    /**
-     * Returns the applicable total tax amount to be paid on a demand
-     *
-     * @param demand
-     * @return
-     */
-    public BigDecimal getTaxAmtFromDemandForApplicablesGeneration(Demand demand) {
-        BigDecimal taxAmt = BigDecimal.ZERO;
-        for (DemandDetail detail : demand.getDemandDetails()) {
-            if (CalculatorConstants.TAXES_TO_BE_CONSIDERD.contains(detail.getTaxHeadMasterCode()))
-                taxAmt = taxAmt.add(detail.getTaxAmount());
-        }
-        return taxAmt;
-    }
-
     /**
      * Returns the total tax amount to be paid on a demand
      *
@@ -376,6 +361,15 @@ public class CalculatorUtils {
         return new StringBuilder().append(configurations.getBillingServiceHost()).append(configurations.getDemandUpdateEndPoint());
     }
 
+    /**
+     * Returns url for demand create Api
+     *
+     * @return
+     */
+    public StringBuilder getCreateDemandUrl() {
+        return new StringBuilder().append(configurations.getBillingServiceHost()).append(configurations.getDemandCreateEndPoint());
+    }
+
     /**
      * Returns url for Bill Gen Api
      *
@@ -519,36 +513,6 @@ public class CalculatorUtils {
     }
 
 
-    public DemandDetailAndCollection getLatestDemandDetailByTaxHead(String taxHeadCode, List<DemandDetail> demandDetails) {
-        List<DemandDetail> details = demandDetails.stream().filter(demandDetail -> demandDetail.getTaxHeadMasterCode().equalsIgnoreCase(taxHeadCode))
-                .collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(details))
-            return null;
-
-        BigDecimal taxAmountForTaxHead = BigDecimal.ZERO;
-        BigDecimal collectionAmountForTaxHead = BigDecimal.ZERO;
-        DemandDetail latestDemandDetail = null;
-        long maxCreatedTime = 0l;
-
-        for (DemandDetail detail : details) {
-            taxAmountForTaxHead = taxAmountForTaxHead.add(detail.getTaxAmount());
-            collectionAmountForTaxHead = collectionAmountForTaxHead.add(detail.getCollectionAmount());
-            if (detail.getAuditDetails().getCreatedTime() > maxCreatedTime) {
-                maxCreatedTime = detail.getAuditDetails().getCreatedTime();
-                latestDemandDetail = detail;
-            }
-        }
-
-        return DemandDetailAndCollection.builder()
-                .taxHeadCode(taxHeadCode)
-                .latestDemandDetail(latestDemandDetail)
-                .taxAmountForTaxHead(taxAmountForTaxHead)
-                .collectionAmountForTaxHead(collectionAmountForTaxHead)
-                .build();
-
-    }
-
-
     /**
      * Returns the applicable total tax amount to be paid after the receipt
      *
@@ -617,23 +581,13 @@ public class CalculatorUtils {
     }
 
     /**
-     * Check if Depreciation is allowed for this Property.
+     * Check if Depreciation is allowed for this Property based on the already fetched payments.
      * In case there is no receipt the depreciation will be allowed
      *
-     * @param demand             The demand agianst which receipts have to checked
-     * @param requestInfoWrapper The incoming requestInfo
+     * @param payments The payments made against the demand consumer code
      */
-
-    public Boolean isAssessmentDepreciationAllowed(Demand demand, RequestInfoWrapper requestInfoWrapper) {
-        boolean isDepreciationAllowed = false;
-        if (allowDepreciationsOnNoReceipts) {
-            List<Payment> payments = paymentService.getPaymentsFromDemand(demand, requestInfoWrapper);
-
-            if (payments.size() == 0)
-                isDepreciationAllowed = true;
-        }
-
-        return isDepreciationAllowed;
+    public Boolean isAssessmentDepreciationAllowed(List<Payment> payments) {
+        return allowDepreciationsOnNoReceipts && CollectionUtils.isEmpty(payments);
     }
 
 
@@ -644,20 +598,57 @@ public class CalculatorUtils {
      */
     public Demand getLatestDemandForCurrentFinancialYear(RequestInfo requestInfo, CalculationCriteria calculationCriteria) {
 
-        DemandSearchCriteria criteria = new DemandSearchCriteria();
-        criteria.setFromDate(calculationCriteria.getFromDate());
-        criteria.setToDate(calculationCriteria.getToDate());
-        criteria.setTenantId(calculationCriteria.getTenantId());
-        criteria.setPropertyId(calculationCriteria.getProperty().getPropertyId());
+        return getLatestDemandsForCurrentFinancialYear(requestInfo, Collections.singletonList(calculationCriteria))
+                .get(calculationCriteria.getProperty().getPropertyId());
+    }
 
-        DemandResponse res = mapper.convertValue(
-                repository.fetchResult(getDemandSearchUrl(criteria), new RequestInfoWrapper(requestInfo)),
-                DemandResponse.class);
+    /**
+     * Searches the latest active demands of all the criteria of a request
+     *
+     * Criteria of the same tenant and demand period are searched together,
+     * with at most the configured number of consumer codes per call.
+     * The criteria are expected to be enriched with the demand period
+     *
+     * @param requestInfo
+     * @param calculationCriterias
+     * @return latest demand by consumer code, properties without demand are not present
+     */
+    public Map<String, Demand> getLatestDemandsForCurrentFinancialYear(RequestInfo requestInfo, List<CalculationCriteria> calculationCriterias) {
+
+        Map<String, List<CalculationCriteria>> criteriasByPeriod = new LinkedHashMap<>();
+        for (CalculationCriteria calculationCriteria : calculationCriterias) {
+            if (StringUtils.isEmpty(calculationCriteria.getProperty().getPropertyId()))
+                continue;
+            String period = calculationCriteria.getTenantId() + SEPARATER + calculationCriteria.getFromDate()
+                    + SEPARATER + calculationCriteria.getToDate();
+            criteriasByPeriod.computeIfAbsent(period, key -> new ArrayList<>()).add(calculationCriteria);
+        }
 
-        if (CollectionUtils.isEmpty(res.getDemands()))
-            return null;
+        Map<String, Demand> demands = new HashMap<>();
+        int chunkSize = configurations.getDemandSearchChunkSize();
+
+        for (List<CalculationCriteria> periodCriterias : criteriasByPeriod.values()) {
+
+            CalculationCriteria first = periodCriterias.get(0);
+            List<String> consumerCodes = periodCriterias.stream().map(c -> c.getProperty().getPropertyId())
+                    .distinct().collect(Collectors.toList());
+
+            for (int from = 0; from < consumerCodes.size(); from += chunkSize) {
 
-        return res.getDemands().get(0);
+                DemandSearchCriteria criteria = new DemandSearchCriteria();
+                criteria.setFromDate(first.getFromDate());
+                criteria.setToDate(first.getToDate());
+                criteria.setTenantId(first.getTenantId());
+                criteria.setConsumerCodes(consumerCodes.subList(from, Math.min(from + chunkSize, consumerCodes.size())));
+
+                DemandResponse res = repository.fetchResult(getDemandSearchUrl(criteria),
+                        new RequestInfoWrapper(requestInfo), DemandResponse.class);
+
+                if (null != res && !CollectionUtils.isEmpty(res.getDemands()))
+                    res.getDemands().forEach(demand -> demands.putIfAbsent(demand.getConsumerCode(), demand));
+            }
+        }
+        return demands;
     }
 
 
@@ -683,6 +674,32 @@ public class CalculatorUtils {
     }
 
 
+    /**
+     * Creates paginated PT search url for all the properties of a tenant or locality
+     *
+     * @param tenantId TenantId of the properties
+     * @param locality Locality code of the properties, all localities if null
+     * @param offset   Number of properties to skip
+     * @param limit    Page size
+     * @return PT search url
+     */
+    public StringBuilder getPTSearchQuery(String tenantId, String locality, Integer offset, Integer limit) {
+
+        StringBuilder url = new StringBuilder(configurations.getPtHost());
+        url.append(configurations.getPtSearchEndpoint())
+                .append(URL_PARAMS_SEPARATER)
+                .append(TENANT_ID_FIELD_FOR_SEARCH_URL).append(tenantId);
+
+        if (!StringUtils.isEmpty(locality))
+            url.append(SEPARATER).append(LOCALITY_FIELD_SEARCH).append(locality);
+
+        url.append(SEPARATER).append(OFFSET_FIELD_SEARCH).append(offset)
+                .append(SEPARATER).append(LIMIT_FIELD_SEARCH).append(limit);
+
+        return url;
+    }
+
+
     /**
      * Creates CalculationRequest from PropertyRequest
      *
@@ -721,12 +738,10 @@ public class CalculatorUtils {
         String url = getPropertySearchURL();
         url = url.replace("{1}",tenantId).replace("{2}",applicationNumber);
 
-        Object result =repository.fetchResult(new StringBuilder(url),RequestInfoWrapper.builder().
-                requestInfo(requestInfo).build());
-
         PropertyResponse response =null;
         try {
-            response = mapper.convertValue(result,PropertyResponse.class);
+            response = repository.fetchResult(new StringBuilder(url),RequestInfoWrapper.builder().
+                    requestInfo(requestInfo).build(), PropertyResponse.class);
         }
         catch (IllegalArgumentException e){
             throw new CustomException("PARSING ERROR","Error while parsing response of TradeLicense Search");
@@ -786,4 +801,21 @@ public class CalculatorUtils {
         return true;
     }
 
+    /**
+     * Returns the hex encoded SHA-256 of the content, used to tell whether computation inputs changed
+     *
+     * @param content canonical form of the inputs
+     */
+    public static String fingerprint(CharSequence content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
 }
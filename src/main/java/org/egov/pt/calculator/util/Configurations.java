@@ -167,6 +167,168 @@ public class Configurations {
 	
 	@Value("${egov.pt.nonresidential.facilities.notpresent.rebate}")
 	private int nonResidentialFacilitiesNotPresentRebate;
+
+	// Bulk calculation
+
+	@Value("${pt.batch.calculation.parallelism:4}")
+	private Integer batchParallelism;
+
+	@Value("${pt.batch.calculation.chunk.size:500}")
+	private Integer batchChunkSize;
+
+	@Value("${pt.batch.calculation.queue.capacity:2}")
+	private Integer batchQueueCapacity;
+
+	@Value("${pt.batch.calculation.engine:BIGDECIMAL}")
+	private String batchCalculationEngine;
+
+	@Value("${pt.batch.calculation.stale.after.millis:600000}")
+	private Long batchStaleAfterMillis;
+
+	@Value("${pt.bulk.estimate.parallelism:8}")
+	private Integer bulkEstimateParallelism;
+
+	@Value("${pt.bulk.estimate.max.criteria:10000}")
+	private Integer bulkEstimateMaxCriteria;
+
+	// Payment snapshots
+
+	@Value("${pt.payment.snapshot.enabled:true}")
+	private Boolean paymentSnapshotEnabled;
+
+	@Value("${pt.payment.snapshot.queue.capacity:10000}")
+	private Integer paymentSnapshotQueueCapacity;
+
+	@Value("${pt.payment.snapshot.batch.size:500}")
+	private Integer paymentSnapshotBatchSize;
+
+	// Master caches
+
+	@Value("${pt.cache.localities.ttl.minutes:1440}")
+	private Long localityCacheTtlMinutes;
+
+	@Value("${pt.cache.categories.ttl.minutes:1440}")
+	private Long categoryCacheTtlMinutes;
+
+	@Value("${pt.cache.max.entries:100}")
+	private Long cacheMaxEntries;
+
+	@Value("${pt.cache.tax.results.ttl.minutes:60}")
+	private Long taxResultsCacheTtlMinutes;
+
+	@Value("${pt.cache.tax.results.max.entries:100000}")
+	private Long taxResultsCacheMaxEntries;
+
+	@Value("${pt.cache.refresh.interval.millis:3600000}")
+	private Long cacheRefreshIntervalMillis;
+
+	@Value("#{'${pt.cache.warmup.tenants:}'.split(',')}")
+	private List<String> cacheWarmupTenants;
+
+	@Value("${pt.cache.warmup.parallelism:8}")
+	private Integer cacheWarmupParallelism;
+
+	@Value("${pt.cache.warmup.timeout.millis:60000}")
+	private Long cacheWarmupTimeoutMillis;
+
+	// Downstream calls
+
+	@Value("${pt.downstream.pool.size:16}")
+	private Integer downstreamPoolSize;
+
+	@Value("${pt.downstream.queue.capacity:200}")
+	private Integer downstreamQueueCapacity;
+
+	@Value("${pt.downstream.call.timeout.millis:10000}")
+	private Long downstreamCallTimeoutMillis;
+
+	@Value("${pt.request.deadline.millis:25000}")
+	private Long requestDeadlineMillis;
+
+	@Value("${pt.demand.search.chunk.size:100}")
+	private Integer demandSearchChunkSize;
+
+	@Value("${pt.payment.search.chunk.size:100}")
+	private Integer paymentSearchChunkSize;
+
+	@Value("${pt.demand.write.batch.size:100}")
+	private Integer demandWriteBatchSize;
+
+	@Value("${pt.bill.generation.parallel.enabled:true}")
+	private Boolean billGenerationParallelEnabled;
+
+	@Value("${pt.bill.generation.concurrency:8}")
+	private Integer billGenerationConcurrency;
+
+	// Http client
+
+	@Value("${pt.http.max.connections.total:200}")
+	private Integer httpMaxConnectionsTotal;
+
+	@Value("${pt.http.max.connections.per.host:50}")
+	private Integer httpMaxConnectionsPerHost;
+
+	/** host url=limit pairs overriding the per host limit */
+	@Value("#{'${pt.http.max.connections.host.overrides:}'.split(',')}")
+	private List<String> httpMaxConnectionsHostOverrides;
+
+	@Value("${pt.http.connect.timeout.millis:3000}")
+	private Integer httpConnectTimeoutMillis;
+
+	@Value("${pt.http.read.timeout.millis:15000}")
+	private Integer httpReadTimeoutMillis;
+
+	@Value("${pt.http.pool.wait.timeout.millis:2000}")
+	private Integer httpPoolWaitTimeoutMillis;
+
+	@Value("${pt.http.keepalive.millis:30000}")
+	private Long httpKeepAliveMillis;
+
+	// Downstream resilience, every limit applies to each downstream service on its own
+
+	@Value("${pt.downstream.breaker.failure.rate.threshold:50}")
+	private Float breakerFailureRateThreshold;
+
+	@Value("${pt.downstream.breaker.slow.call.rate.threshold:80}")
+	private Float breakerSlowCallRateThreshold;
+
+	@Value("${pt.downstream.breaker.slow.call.millis:8000}")
+	private Long breakerSlowCallMillis;
+
+	@Value("${pt.downstream.breaker.window.size:50}")
+	private Integer breakerWindowSize;
+
+	@Value("${pt.downstream.breaker.minimum.calls:20}")
+	private Integer breakerMinimumCalls;
+
+	@Value("${pt.downstream.breaker.open.millis:30000}")
+	private Long breakerOpenMillis;
+
+	@Value("${pt.downstream.breaker.half.open.calls:5}")
+	private Integer breakerHalfOpenCalls;
+
+	@Value("${pt.downstream.bulkhead.max.concurrent.calls:40}")
+	private Integer bulkheadMaxConcurrentCalls;
+
+	@Value("${pt.downstream.bulkhead.max.wait.millis:500}")
+	private Long bulkheadMaxWaitMillis;
+
+	@Value("${pt.downstream.retry.max.attempts:3}")
+	private Integer retryMaxAttempts;
+
+	@Value("${pt.downstream.retry.backoff.millis:200}")
+	private Long retryBackoffMillis;
+
+	@Value("${pt.downstream.retry.backoff.multiplier:2}")
+	private Double retryBackoffMultiplier;
+
+	@Value("${pt.downstream.retry.jitter:0.5}")
+	private Double retryJitter;
+
+	// Calculation consumer
+
+	@Value("${kafka.calculation.dlq.topic:pt-calculation-dlq}")
+	private String calculationDeadLetterTopic;
 	
 
 }
@@ -0,0 +1,126 @@
+package org.egov.pt.calculator.util;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.egov.tracer.model.CustomException;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.*;
+
+/**
+ * Runs independent calls to other services concurrently on a bounded pool
+ *
+ * Every call is awaited with its own timeout, capped by the deadline of the request it belongs to.
+ * When the pool and its queue are full the call runs on the calling thread.
+ */
+@Component
+@Slf4j
+public class DownstreamCallExecutor {
+
+	@Autowired
+	private Configurations configs;
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger threadCount = new AtomicInteger();
+		executor = new ThreadPoolExecutor(configs.getDownstreamPoolSize(), configs.getDownstreamPoolSize(), 60L,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<>(configs.getDownstreamQueueCapacity()),
+				runnable -> {
+					Thread thread = new Thread(runnable, "downstream-call-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the deadline for all the calls started now on behalf of one request
+	 */
+	public long getDeadline() {
+		return System.currentTimeMillis() + configs.getRequestDeadlineMillis();
+	}
+
+	/**
+	 * Starts the call on the pool, the logging context and request trace of the caller are carried over
+	 *
+	 * @param call the call to be made
+	 * @return future of the call result
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> call) {
+
+		Map<String, String> context = MDC.getCopyOfContextMap();
+		RequestTrace trace = RequestTrace.current();
+		return CompletableFuture.supplyAsync(() -> {
+			Map<String, String> previous = MDC.getCopyOfContextMap();
+			RequestTrace previousTrace = RequestTrace.current();
+			setContext(context);
+			RequestTrace.set(trace);
+			try {
+				return call.get();
+			} finally {
+				setContext(previous);
+				RequestTrace.set(previousTrace);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Waits for the call until its timeout or the request deadline, whichever is earlier
+	 *
+	 * Errors thrown by the call are rethrown as is
+	 *
+	 * @param future future of the call
+	 * @param callName name of the call for the error message
+	 * @param deadline deadline of the request in epoch millis
+	 * @return result of the call
+	 */
+	public <T> T await(CompletableFuture<T> future, String callName, long deadline) {
+
+		long timeout = Math.min(configs.getDownstreamCallTimeoutMillis(), deadline - System.currentTimeMillis());
+		try {
+			return future.get(Math.max(0, timeout), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			log.error("Call to {} did not complete within {} ms", callName, timeout);
+			throw new CustomException(EG_PT_DOWNSTREAM_TIMEOUT, EG_PT_DOWNSTREAM_TIMEOUT_MSG + callName);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+			throw new CustomException(EG_PT_DOWNSTREAM_TIMEOUT, EG_PT_DOWNSTREAM_TIMEOUT_MSG + callName);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new CustomException(EG_PT_DOWNSTREAM_FAILED, EG_PT_DOWNSTREAM_FAILED_MSG + callName);
+		}
+	}
+
+	private void setContext(Map<String, String> context) {
+		if (null == context)
+			MDC.clear();
+		else
+			MDC.setContextMap(context);
+	}
+
+}
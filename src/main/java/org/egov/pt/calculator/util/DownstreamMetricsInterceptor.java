@@ -0,0 +1,74 @@
+package org.egov.pt.calculator.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call made through the RestTemplates of the application
+ *
+ * Calls are timed under pt.downstream.requests tagged with the host, the endpoint path without
+ * the query string, the method and the response status, IO_ERROR when no response was received.
+ * Every attempt of a retried call is timed on its own.
+ */
+@Component
+public class DownstreamMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+	public static final String DOWNSTREAM_TIMER = "pt.downstream.requests";
+
+	private static final String IO_ERROR = "IO_ERROR";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private List<RestTemplate> restTemplates;
+
+	@PostConstruct
+	public void init() {
+		restTemplates.forEach(restTemplate -> {
+			List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+			interceptors.add(this);
+			restTemplate.setInterceptors(interceptors);
+		});
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String status = IO_ERROR;
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			status = String.valueOf(response.getRawStatusCode());
+			return response;
+		} finally {
+			URI uri = request.getURI();
+			String host = uri.getPort() < 0 ? String.valueOf(uri.getHost()) : uri.getHost() + ":" + uri.getPort();
+			String endpoint = null == uri.getPath() ? "" : uri.getPath();
+			long nanos = sample.stop(Timer.builder(DOWNSTREAM_TIMER)
+					.tag("host", host)
+					.tag("endpoint", endpoint)
+					.tag("method", String.valueOf(request.getMethod()))
+					.tag("status", status)
+					.register(meterRegistry));
+			RequestTrace.recordDownstreamCall(host, endpoint, status, nanos);
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package org.egov.pt.calculator.util;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.egov.tracer.model.CustomException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import static org.egov.pt.calculator.util.CalculatorConstants.*;
+
+/**
+ * Circuit breaker, bulkhead and retries of the calls to other services
+ *
+ * Every downstream service, named by the first segment of the url path like billing-service or
+ * egov-mdms-service, gets its own breaker and bulkhead. Connection failures, 5xx responses and slow
+ * calls open the breaker, after which calls to that service fail fast until it is probed again.
+ * Only searches are retried, with a jittered exponential backoff. The state of the breakers,
+ * bulkheads and retries is published through the meter registry.
+ */
+@Component
+@Slf4j
+public class DownstreamResilience {
+
+	private static final String SEARCH_PATH_SUFFIX = "_search";
+
+	@Autowired
+	private Configurations configs;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	private BulkheadRegistry bulkheadRegistry;
+
+	private RetryRegistry retryRegistry;
+
+	@PostConstruct
+	public void init() {
+
+		circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+				.failureRateThreshold(configs.getBreakerFailureRateThreshold())
+				.slowCallRateThreshold(configs.getBreakerSlowCallRateThreshold())
+				.slowCallDurationThreshold(Duration.ofMillis(configs.getBreakerSlowCallMillis()))
+				.slidingWindowSize(configs.getBreakerWindowSize())
+				.minimumNumberOfCalls(configs.getBreakerMinimumCalls())
+				.waitDurationInOpenState(Duration.ofMillis(configs.getBreakerOpenMillis()))
+				.permittedNumberOfCallsInHalfOpenState(configs.getBreakerHalfOpenCalls())
+				.recordExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+				.build());
+
+		bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+				.maxConcurrentCalls(configs.getBulkheadMaxConcurrentCalls())
+				.maxWaitDuration(Duration.ofMillis(configs.getBulkheadMaxWaitMillis()))
+				.build());
+
+		retryRegistry = RetryRegistry.of(RetryConfig.custom()
+				.maxAttempts(configs.getRetryMaxAttempts())
+				.intervalFunction(IntervalFunction.ofExponentialRandomBackoff(configs.getRetryBackoffMillis(),
+						configs.getRetryBackoffMultiplier(), configs.getRetryJitter()))
+				.retryExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+				.build());
+
+		TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+		TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+		TaggedRetryMetrics.ofRetryRegistry(retryRegistry).bindTo(meterRegistry);
+	}
+
+	/**
+	 * Makes the call to the given url through the breaker and bulkhead of its service
+	 *
+	 * Searches are retried on connection failures and 5xx responses, other calls are made once
+	 *
+	 * @param url url of the call
+	 * @param call the call to be made
+	 * @return result of the call
+	 */
+	public <T> T execute(String url, Supplier<T> call) {
+
+		UriComponents uri = UriComponentsBuilder.fromHttpUrl(url).build();
+		String service = getServiceName(uri);
+
+		CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(service);
+		Supplier<T> decorated = CircuitBreaker.decorateSupplier(circuitBreaker,
+				Bulkhead.decorateSupplier(bulkheadRegistry.bulkhead(service), call));
+		if (null != uri.getPath() && uri.getPath().endsWith(SEARCH_PATH_SUFFIX))
+			decorated = Retry.decorateSupplier(retryRegistry.retry(service), decorated);
+
+		try {
+			return decorated.get();
+		} catch (CallNotPermittedException e) {
+			log.error("Failing fast, the circuit breaker of {} is {}", service, circuitBreaker.getState());
+			throw new CustomException(EG_PT_DOWNSTREAM_UNAVAILABLE, EG_PT_DOWNSTREAM_UNAVAILABLE_MSG + service);
+		} catch (BulkheadFullException e) {
+			log.error("Failing fast, {} calls to {} are already in progress", configs.getBulkheadMaxConcurrentCalls(),
+					service);
+			throw new CustomException(EG_PT_DOWNSTREAM_BUSY, EG_PT_DOWNSTREAM_BUSY_MSG + service);
+		}
+	}
+
+	private String getServiceName(UriComponents uri) {
+
+		List<String> pathSegments = uri.getPathSegments();
+		if (!CollectionUtils.isEmpty(pathSegments))
+			return pathSegments.get(0);
+		return uri.getHost();
+	}
+
+}
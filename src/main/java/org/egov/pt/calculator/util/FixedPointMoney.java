@@ -0,0 +1,175 @@
+package org.egov.pt.calculator.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed point arithmetic on amounts held as a long unscaled value and a decimal scale
+ *
+ * Amounts in paise have the scale 2. Every operation is exact, rounding happens only where
+ * the BigDecimal computation rounds and always half up, away from zero on a tie. An amount
+ * that does not fit in a long fails with an ArithmeticException so that the caller can fall
+ * back to BigDecimal.
+ */
+public final class FixedPointMoney {
+
+	public static final int PAISE_SCALE = 2;
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1L;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private FixedPointMoney() {
+	}
+
+	/**
+	 * Returns the unscaled value of the amount at the scale returned by {@link #scale(BigDecimal)}
+	 */
+	public static long unscaled(BigDecimal value) {
+		return value.scale() < 0 ? value.setScale(0).longValueExact() : value.unscaledValue().longValueExact();
+	}
+
+	public static int scale(BigDecimal value) {
+		return Math.max(0, value.scale());
+	}
+
+	/**
+	 * Rounds the unscaled value from one scale to a smaller one half up, a larger scale is exact
+	 */
+	public static long rescaleHalfUp(long unscaled, int fromScale, int toScale) {
+
+		if (fromScale <= toScale)
+			return Math.multiplyExact(unscaled, powerOfTen(toScale - fromScale));
+
+		long divisor = powerOfTen(fromScale - toScale);
+		long quotient = unscaled / divisor;
+		long remainder = Math.abs(unscaled % divisor);
+		if (remainder >= divisor - remainder)
+			quotient += Long.signum(unscaled);
+		return quotient;
+	}
+
+	/**
+	 * Multiplies an amount in paise by the multiplier and rounds the product half up to paise
+	 */
+	public static long multiplyHalfUp(long paise, Factor multiplier) {
+		return rescaleHalfUp(Math.multiplyExact(paise, multiplier.getUnscaled()), PAISE_SCALE + multiplier.getScale(),
+				PAISE_SCALE);
+	}
+
+	/**
+	 * Converts the amount in paise to a BigDecimal of scale 2
+	 */
+	public static BigDecimal toAmount(long paise) {
+		return BigDecimal.valueOf(paise, PAISE_SCALE);
+	}
+
+	private static long powerOfTen(int exponent) {
+		if (exponent >= POWERS_OF_TEN.length)
+			throw new ArithmeticException("Scale difference out of range : " + exponent);
+		return POWERS_OF_TEN[exponent];
+	}
+
+	/**
+	 * Decimal rate or factor converted once to its unscaled value and scale, so that the fixed point
+	 * arithmetic on it allocates nothing
+	 *
+	 * A value that does not fit in a long keeps only its BigDecimal, asking for its unscaled value
+	 * fails with an ArithmeticException like the arithmetic on it would
+	 */
+	public static final class Factor {
+
+		public static final Factor ZERO = new Factor(BigDecimal.ZERO);
+
+		private final BigDecimal value;
+
+		private final long unscaled;
+
+		private final int scale;
+
+		private final boolean exact;
+
+		public Factor(BigDecimal value) {
+
+			this.value = value;
+			long unscaledValue = 0L;
+			boolean fits = true;
+			try {
+				unscaledValue = unscaled(value);
+			} catch (ArithmeticException e) {
+				fits = false;
+			}
+			this.unscaled = unscaledValue;
+			this.scale = FixedPointMoney.scale(value);
+			this.exact = fits;
+		}
+
+		public BigDecimal getValue() {
+			return value;
+		}
+
+		public long getUnscaled() {
+			if (!exact)
+				throw new ArithmeticException("Value out of the long range : " + value);
+			return unscaled;
+		}
+
+		public int getScale() {
+			return scale;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Factor && value.equals(((Factor) other).value);
+		}
+
+		@Override
+		public int hashCode() {
+			return value.hashCode();
+		}
+
+		/**
+		 * Returns the BigDecimal string so that fingerprints of the rates stay as they were
+		 */
+		@Override
+		public String toString() {
+			return value.toString();
+		}
+
+	}
+
+	/**
+	 * Exact running sum of terms of any scale, kept at the largest scale added so far
+	 */
+	public static final class Sum {
+
+		private long unscaled;
+
+		private int scale;
+
+		public void add(long termUnscaled, int termScale) {
+
+			// trailing zeros are dropped so that the running scale stays as small as the terms allow
+			while (termScale > PAISE_SCALE && termUnscaled % 10 == 0) {
+				termUnscaled /= 10;
+				termScale--;
+			}
+			if (termScale > scale) {
+				unscaled = Math.multiplyExact(unscaled, powerOfTen(termScale - scale));
+				scale = termScale;
+			} else if (termScale < scale) {
+				termUnscaled = Math.multiplyExact(termUnscaled, powerOfTen(scale - termScale));
+			}
+			unscaled = Math.addExact(unscaled, termUnscaled);
+		}
+
+		public long toPaise() {
+			return rescaleHalfUp(unscaled, scale, PAISE_SCALE);
+		}
+
+	}
+
+}
@@ -0,0 +1,127 @@
+package org.egov.pt.calculator.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pooled keep-alive http client behind every RestTemplate of the application
+ *
+ * The RestTemplate beans keep their interceptors, only the request factory is replaced. Connections
+ * are limited in total and per host, idle and expired connections are evicted in the background.
+ * Responses are buffered only while the tracer logs bodies at DEBUG, otherwise they are streamed
+ * straight from the connection into the decoder without holding the whole body in memory.
+ */
+@Component
+@Slf4j
+public class PooledHttpClient {
+
+	private static final String TRACER_LOGGER = "org.egov.tracer";
+
+	@Autowired
+	private Configurations configs;
+
+	@Autowired
+	private List<RestTemplate> restTemplates;
+
+	private PoolingHttpClientConnectionManager connectionManager;
+
+	private CloseableHttpClient httpClient;
+
+	@PostConstruct
+	public void init() {
+
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(configs.getHttpMaxConnectionsTotal());
+		connectionManager.setDefaultMaxPerRoute(configs.getHttpMaxConnectionsPerHost());
+		setHostLimits(configs.getHttpMaxConnectionsHostOverrides());
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(configs.getHttpConnectTimeoutMillis())
+				.setSocketTimeout(configs.getHttpReadTimeoutMillis())
+				.setConnectionRequestTimeout(configs.getHttpPoolWaitTimeoutMillis())
+				.build();
+
+		httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(getKeepAliveStrategy(configs.getHttpKeepAliveMillis()))
+				.evictExpiredConnections()
+				.evictIdleConnections(configs.getHttpKeepAliveMillis(), TimeUnit.MILLISECONDS)
+				.build();
+
+		boolean buffered = LoggerFactory.getLogger(TRACER_LOGGER).isDebugEnabled();
+		ClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+		if (buffered)
+			requestFactory = new BufferingClientHttpRequestFactory(requestFactory);
+		ClientHttpRequestFactory sharedRequestFactory = requestFactory;
+		restTemplates.forEach(restTemplate -> restTemplate.setRequestFactory(sharedRequestFactory));
+
+		log.info("Pooled http client with {} connections, {} per host, connect timeout {} ms, read timeout {} ms, buffered {}",
+				configs.getHttpMaxConnectionsTotal(), configs.getHttpMaxConnectionsPerHost(),
+				configs.getHttpConnectTimeoutMillis(), configs.getHttpReadTimeoutMillis(), buffered);
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException {
+		httpClient.close();
+	}
+
+	/**
+	 * Returns the leased, pending, available and max connections of the pool
+	 */
+	public PoolStats getPoolStats() {
+		return connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Applies the host url=limit overrides of the per host connection limit
+	 */
+	private void setHostLimits(List<String> hostLimits) {
+
+		for (String hostLimit : hostLimits) {
+			if (StringUtils.isEmpty(hostLimit.trim()))
+				continue;
+			int separator = hostLimit.lastIndexOf('=');
+			if (separator < 1)
+				throw new IllegalArgumentException("Invalid per host connection limit : " + hostLimit);
+			HttpHost host = HttpHost.create(hostLimit.substring(0, separator).trim());
+			connectionManager.setMaxPerRoute(new HttpRoute(host),
+					Integer.parseInt(hostLimit.substring(separator + 1).trim()));
+		}
+	}
+
+	/**
+	 * Keeps a connection alive as long as the server allows, capped by the configured keep alive
+	 */
+	private ConnectionKeepAliveStrategy getKeepAliveStrategy(long keepAliveMillis) {
+		return (response, context) -> {
+			long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+		};
+	}
+
+}
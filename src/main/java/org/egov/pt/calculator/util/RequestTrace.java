@@ -0,0 +1,130 @@
+package org.egov.pt.calculator.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.egov.pt.calculator.web.models.CalculationTrace;
+import org.egov.pt.calculator.web.models.DownstreamCallTrace;
+import org.egov.pt.calculator.web.models.DownstreamServiceTrace;
+
+/**
+ * Stage times and downstream calls of the calculation request being traced on the current thread
+ *
+ * A trace is started only when the request asks for it, the stages and calls of untraced requests
+ * are not recorded. Calls started through the DownstreamCallExecutor carry the trace of the caller.
+ */
+public final class RequestTrace {
+
+	private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+	private final long startNanos = System.nanoTime();
+
+	private final Map<String, LongAdder> stageNanos = new ConcurrentHashMap<>();
+
+	private final Queue<DownstreamCallTrace> downstreamCalls = new ConcurrentLinkedQueue<>();
+
+	private RequestTrace() {
+	}
+
+	/**
+	 * Starts tracing the request on the current thread
+	 */
+	public static RequestTrace start() {
+		RequestTrace trace = new RequestTrace();
+		CURRENT.set(trace);
+		return trace;
+	}
+
+	/**
+	 * Returns the trace of the current thread, null when the request is not traced
+	 */
+	public static RequestTrace current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Makes the given trace, which may be null, the trace of the current thread
+	 */
+	public static void set(RequestTrace trace) {
+		if (null == trace)
+			CURRENT.remove();
+		else
+			CURRENT.set(trace);
+	}
+
+	public static void clear() {
+		CURRENT.remove();
+	}
+
+	public static void recordStage(String stage, long nanos) {
+		RequestTrace trace = CURRENT.get();
+		if (null != trace)
+			trace.stageNanos.computeIfAbsent(stage, key -> new LongAdder()).add(nanos);
+	}
+
+	public static void recordDownstreamCall(String host, String endpoint, String status, long nanos) {
+		RequestTrace trace = CURRENT.get();
+		if (null != trace)
+			trace.downstreamCalls.add(new DownstreamCallTrace(host, endpoint, status, toMillis(nanos)));
+	}
+
+	/**
+	 * Returns the times recorded so far with every downstream call
+	 */
+	public CalculationTrace toCalculationTrace() {
+		CalculationTrace calculationTrace = toStageTrace();
+		calculationTrace.setDownstreamCalls(new ArrayList<>(downstreamCalls));
+		return calculationTrace;
+	}
+
+	/**
+	 * Returns the times recorded so far with the downstream calls summed by host and endpoint, the
+	 * size of the summary does not grow with the number of calls so it fits in a response header
+	 */
+	public CalculationTrace toCalculationTraceSummary() {
+
+		Map<String, DownstreamServiceTrace> services = new LinkedHashMap<>();
+		for (DownstreamCallTrace call : downstreamCalls) {
+			DownstreamServiceTrace service = services.computeIfAbsent(call.getHost() + call.getEndpoint(),
+					key -> DownstreamServiceTrace.builder().host(call.getHost()).endpoint(call.getEndpoint())
+							.callCount(0).failedCount(0).totalMillis(0L).maxMillis(0L).build());
+			service.setCallCount(service.getCallCount() + 1);
+			if (null == call.getStatus() || !call.getStatus().startsWith("2"))
+				service.setFailedCount(service.getFailedCount() + 1);
+			service.setTotalMillis(service.getTotalMillis() + call.getMillis());
+			service.setMaxMillis(Math.max(service.getMaxMillis(), call.getMillis()));
+		}
+
+		CalculationTrace calculationTrace = toStageTrace();
+		calculationTrace.setDownstreamServices(new ArrayList<>(services.values()));
+		return calculationTrace;
+	}
+
+	private CalculationTrace toStageTrace() {
+		return CalculationTrace.builder()
+				.totalMillis(toMillis(System.nanoTime() - startNanos))
+				.masterFetchMillis(getStageMillis(CalculatorMetrics.STAGE_MASTER_FETCH))
+				.paymentSearchMillis(getStageMillis(CalculatorMetrics.STAGE_PAYMENT_SEARCH))
+				.demandSearchMillis(getStageMillis(CalculatorMetrics.STAGE_DEMAND_SEARCH))
+				.arvComputationMillis(getStageMillis(CalculatorMetrics.STAGE_CALCULATE_ALL_TAXES))
+				.demandCreateMillis(getStageMillis(CalculatorMetrics.STAGE_DEMAND_CREATE))
+				.downstreamCallCount(downstreamCalls.size())
+				.build();
+	}
+
+	private Long getStageMillis(String stage) {
+		LongAdder nanos = stageNanos.get(stage);
+		return null == nanos ? 0L : toMillis(nanos.sum());
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+}
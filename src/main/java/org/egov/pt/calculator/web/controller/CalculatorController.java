@@ -1,23 +1,37 @@
 package org.egov.pt.calculator.web.controller;
 
+import org.egov.pt.calculator.service.BatchCalculationService;
+import org.egov.pt.calculator.service.BulkEstimationService;
 import org.egov.pt.calculator.service.DemandService;
 import org.egov.pt.calculator.service.EstimationService;
+import org.egov.pt.calculator.service.MasterCacheService;
 import org.egov.pt.calculator.service.PayService;
+import org.egov.pt.calculator.util.RequestTrace;
+import org.egov.pt.calculator.web.models.BatchCalculationReq;
+import org.egov.pt.calculator.web.models.BatchCalculationRes;
 import org.egov.pt.calculator.web.models.Calculation;
 import org.egov.pt.calculator.web.models.CalculationReq;
 import org.egov.pt.calculator.web.models.CalculationRes;
 import org.egov.pt.calculator.web.models.GetBillCriteria;
+import org.egov.pt.calculator.web.models.MasterCacheRes;
 import org.egov.pt.calculator.web.models.demand.BillResponse;
 import org.egov.pt.calculator.web.models.demand.DemandResponse;
 import org.egov.pt.calculator.web.models.property.RequestInfoWrapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import javax.validation.Valid;
 import java.util.Map;
@@ -26,6 +40,10 @@ import java.util.Map;
 @RequestMapping("/propertytax")
 public class CalculatorController {
 
+	private static final String TRACE_HEADER = "X-PT-Calculation-Trace";
+
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
 	@Autowired
 	private DemandService demandService;
 
@@ -35,14 +53,64 @@ public class CalculatorController {
 	@Autowired
 	private PayService payService;
 
+	@Autowired
+	private BatchCalculationService batchCalculationService;
+
+	@Autowired
+	private BulkEstimationService bulkEstimationService;
+
+	@Autowired
+	private MasterCacheService masterCacheService;
+
+	@Autowired
+	private ObjectMapper mapper;
+
 	@PostMapping("/_estimate")
 	public ResponseEntity<CalculationRes> getTaxEstimation(@RequestBody @Valid CalculationReq calculationReq) {
-		return new ResponseEntity<>(calculatorService.getTaxCalculation(calculationReq), HttpStatus.OK);
+
+		if (!Boolean.TRUE.equals(calculationReq.getTrace()))
+			return new ResponseEntity<>(calculatorService.getTaxCalculation(calculationReq), HttpStatus.OK);
+
+		RequestTrace trace = RequestTrace.start();
+		try {
+			CalculationRes calculationRes = calculatorService.getTaxCalculation(calculationReq);
+			calculationRes.setTrace(trace.toCalculationTrace());
+			return new ResponseEntity<>(calculationRes, HttpStatus.OK);
+		} finally {
+			RequestTrace.clear();
+		}
 	}
 
+	/**
+	 * The response is a bare map of calculations, the trace of a traced request is returned as
+	 * json in the X-PT-Calculation-Trace header with the downstream calls summed by service so
+	 * that the header stays small however many calls were made
+	 */
 	@PostMapping("/_calculate")
-	public ResponseEntity<Map<String, Calculation>> generateDemands(@RequestBody @Valid CalculationReq calculationReq) {
-		return new ResponseEntity<>(calculatorService.calculateAndCreateDemand(calculationReq), HttpStatus.OK);
+	public ResponseEntity<Map<String, Calculation>> generateDemands(@RequestBody @Valid CalculationReq calculationReq)
+			throws JsonProcessingException {
+
+		if (!Boolean.TRUE.equals(calculationReq.getTrace()))
+			return new ResponseEntity<>(calculatorService.calculateAndCreateDemand(calculationReq), HttpStatus.OK);
+
+		RequestTrace trace = RequestTrace.start();
+		try {
+			Map<String, Calculation> calculations = calculatorService.calculateAndCreateDemand(calculationReq);
+			HttpHeaders headers = new HttpHeaders();
+			headers.set(TRACE_HEADER, mapper.writeValueAsString(trace.toCalculationTraceSummary()));
+			return new ResponseEntity<>(calculations, headers, HttpStatus.OK);
+		} finally {
+			RequestTrace.clear();
+		}
+	}
+
+	/**
+	 * Estimates many properties of one tenant, the response is streamed with one json line per
+	 * property carrying either its calculation or its errors
+	 */
+	@PostMapping("/_bulkestimate")
+	public ResponseEntity<StreamingResponseBody> getBulkTaxEstimation(@RequestBody @Valid CalculationReq calculationReq) {
+		return ResponseEntity.ok().contentType(NDJSON).body(bulkEstimationService.estimate(calculationReq));
 	}
 
 	@PostMapping("/_getbill")
@@ -57,4 +125,36 @@ public class CalculatorController {
 		return new ResponseEntity<>(demandService.updateDemands(getBillCriteria, requestInfoWrapper), HttpStatus.OK);
 	}
 
+	@PostMapping("/_batchcalculate")
+	public ResponseEntity<BatchCalculationRes> startBatchCalculation(@RequestBody @Valid BatchCalculationReq batchCalculationReq) {
+		return new ResponseEntity<>(BatchCalculationRes.builder()
+				.calculationBatch(batchCalculationService.startBatch(batchCalculationReq)).build(), HttpStatus.ACCEPTED);
+	}
+
+	@PostMapping("/_batchstatus")
+	public ResponseEntity<BatchCalculationRes> getBatchStatus(@RequestBody @Valid RequestInfoWrapper requestInfoWrapper,
+			@RequestParam String batchId) {
+		return new ResponseEntity<>(BatchCalculationRes.builder()
+				.calculationBatch(batchCalculationService.getBatch(batchId)).build(), HttpStatus.OK);
+	}
+
+	@PostMapping("/cache/_evict")
+	public ResponseEntity<MasterCacheRes> evictMasterCache(@RequestBody @Valid RequestInfoWrapper requestInfoWrapper,
+			@RequestParam String tenantId) {
+		return new ResponseEntity<>(MasterCacheRes.builder().tenantId(tenantId)
+				.rateVersion(masterCacheService.evict(tenantId)).build(), HttpStatus.OK);
+	}
+
+	@PostMapping("/cache/_refresh")
+	public ResponseEntity<MasterCacheRes> refreshMasterCache(@RequestBody @Valid RequestInfoWrapper requestInfoWrapper,
+			@RequestParam String tenantId) {
+		return new ResponseEntity<>(MasterCacheRes.builder().tenantId(tenantId)
+				.rateVersion(masterCacheService.refresh(tenantId, requestInfoWrapper.getRequestInfo())).build(), HttpStatus.OK);
+	}
+
+	@PostMapping("/cache/_stats")
+	public ResponseEntity<MasterCacheRes> getMasterCacheStats(@RequestBody @Valid RequestInfoWrapper requestInfoWrapper) {
+		return new ResponseEntity<>(MasterCacheRes.builder().cacheStats(masterCacheService.getStats()).build(), HttpStatus.OK);
+	}
+
 }
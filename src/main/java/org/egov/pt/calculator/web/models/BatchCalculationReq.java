@@ -0,0 +1,45 @@
+package org.egov.pt.calculator.web.models;
+
+import javax.validation.constraints.NotNull;
+
+import org.egov.common.contract.request.RequestInfo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Request to calculate the taxes of all the properties of a tenant or locality
+ *
+ * When batchId is given the run is resumed from its last checkpoint
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class BatchCalculationReq {
+
+	@JsonProperty("RequestInfo")
+	@NotNull
+	private RequestInfo requestInfo;
+
+	@JsonProperty("tenantId")
+	private String tenantId;
+
+	@JsonProperty("locality")
+	private String locality;
+
+	@JsonProperty("financialYear")
+	private String financialYear;
+
+	@JsonProperty("batchId")
+	private String batchId;
+
+}
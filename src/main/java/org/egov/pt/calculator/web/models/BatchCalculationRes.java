@@ -0,0 +1,26 @@
+package org.egov.pt.calculator.web.models;
+
+import org.egov.common.contract.response.ResponseInfo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchCalculationRes {
+
+	@JsonProperty("ResponseInfo")
+	private ResponseInfo responseInfo;
+
+	@JsonProperty("CalculationBatch")
+	private CalculationBatch calculationBatch;
+
+}
@@ -0,0 +1,34 @@
+package org.egov.pt.calculator.web.models;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One line of a bulk estimate, the calculation of a property or the errors it failed with
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkEstimate {
+
+	@JsonProperty("propertyId")
+	private String propertyId;
+
+	@JsonProperty("Calculation")
+	private Calculation calculation;
+
+	@JsonProperty("Errors")
+	private Map<String, String> errors;
+
+}
@@ -0,0 +1,57 @@
+package org.egov.pt.calculator.web.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress and checkpoint of a bulk ARV/tax calculation run
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CalculationBatch {
+
+	public enum StatusEnum {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	@JsonProperty("batchId")
+	private String batchId;
+
+	@JsonProperty("tenantId")
+	private String tenantId;
+
+	@JsonProperty("locality")
+	private String locality;
+
+	@JsonProperty("financialYear")
+	private String financialYear;
+
+	/* number of properties read from property search, the run resumes from here */
+	@JsonProperty("offset")
+	private Integer offset;
+
+	@JsonProperty("processed")
+	private Long processed;
+
+	@JsonProperty("failed")
+	private Long failed;
+
+	@JsonProperty("status")
+	private StatusEnum status;
+
+	@JsonProperty("throughput")
+	private Double throughput;
+
+	@JsonProperty("createdTime")
+	private Long createdTime;
+
+	@JsonProperty("lastModifiedTime")
+	private Long lastModifiedTime;
+
+}
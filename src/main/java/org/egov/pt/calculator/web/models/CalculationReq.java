@@ -40,6 +40,10 @@ public class CalculationReq   {
         @JsonProperty("CalculationCriteria")
         private List<CalculationCriteria> calculationCriteria;
 
+        /** returns the time spent in each stage of the request along with the response when true */
+        @JsonProperty("trace")
+        private Boolean trace;
+
 
         public CalculationReq addCalulationCriteriaItem(CalculationCriteria calulationCriteriaItem) {
         this.calculationCriteria.add(calulationCriteriaItem);
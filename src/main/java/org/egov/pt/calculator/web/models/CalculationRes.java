@@ -8,6 +8,7 @@ import javax.validation.Valid;
 import org.egov.common.contract.response.ResponseInfo;
 import org.springframework.validation.annotation.Validated;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.AllArgsConstructor;
@@ -34,6 +35,10 @@ public class CalculationRes   {
         @Valid
         private List<Calculation> calculation;
 
+        @JsonProperty("Trace")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private CalculationTrace trace;
+
 
         public CalculationRes addCalculationItem(Calculation calculationItem) {
             if (this.calculation == null) {
@@ -0,0 +1,58 @@
+package org.egov.pt.calculator.web.models;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Time spent by one calculation request in each of its stages
+ *
+ * Stage times are summed over every run of the stage in the request, the searches run
+ * alongside the tax computation so the stages may add up to more than the total.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CalculationTrace {
+
+	@JsonProperty("totalMillis")
+	private Long totalMillis;
+
+	@JsonProperty("masterFetchMillis")
+	private Long masterFetchMillis;
+
+	@JsonProperty("paymentSearchMillis")
+	private Long paymentSearchMillis;
+
+	@JsonProperty("demandSearchMillis")
+	private Long demandSearchMillis;
+
+	@JsonProperty("arvComputationMillis")
+	private Long arvComputationMillis;
+
+	@JsonProperty("demandCreateMillis")
+	private Long demandCreateMillis;
+
+	@JsonProperty("downstreamCallCount")
+	private Integer downstreamCallCount;
+
+	/** every call, left out of the summary returned in a header */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	@JsonProperty("DownstreamCalls")
+	private List<DownstreamCallTrace> downstreamCalls;
+
+	/** calls summed by host and endpoint, only in the summary returned in a header */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	@JsonProperty("DownstreamServices")
+	private List<DownstreamServiceTrace> downstreamServices;
+
+}
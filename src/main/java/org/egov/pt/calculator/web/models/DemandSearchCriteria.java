@@ -1,6 +1,8 @@
 package org.egov.pt.calculator.web.models;
 
 
+import java.util.Collection;
+
 import lombok.Data;
 
 @Data
@@ -10,6 +12,8 @@ public class DemandSearchCriteria {
 
     private String propertyId;
 
+    private Collection<String> consumerCodes;
+
     private Long fromDate;
 
     private Long toDate;
@@ -0,0 +1,33 @@
+package org.egov.pt.calculator.web.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One call made to another service on behalf of a traced calculation request
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DownstreamCallTrace {
+
+	@JsonProperty("host")
+	private String host;
+
+	@JsonProperty("endpoint")
+	private String endpoint;
+
+	@JsonProperty("status")
+	private String status;
+
+	@JsonProperty("millis")
+	private Long millis;
+
+}
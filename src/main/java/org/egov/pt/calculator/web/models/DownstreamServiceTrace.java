@@ -0,0 +1,40 @@
+package org.egov.pt.calculator.web.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Calls made to one endpoint of another service on behalf of a traced calculation request
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DownstreamServiceTrace {
+
+	@JsonProperty("host")
+	private String host;
+
+	@JsonProperty("endpoint")
+	private String endpoint;
+
+	@JsonProperty("callCount")
+	private Integer callCount;
+
+	/** calls which failed or did not answer with a 2xx status */
+	@JsonProperty("failedCount")
+	private Integer failedCount;
+
+	@JsonProperty("totalMillis")
+	private Long totalMillis;
+
+	@JsonProperty("maxMillis")
+	private Long maxMillis;
+
+}
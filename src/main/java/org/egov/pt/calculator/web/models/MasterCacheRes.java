@@ -0,0 +1,34 @@
+package org.egov.pt.calculator.web.models;
+
+import java.util.Map;
+
+import org.egov.common.contract.response.ResponseInfo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MasterCacheRes {
+
+	@JsonProperty("ResponseInfo")
+	private ResponseInfo responseInfo;
+
+	@JsonProperty("tenantId")
+	private String tenantId;
+
+	@JsonProperty("rateVersion")
+	private Long rateVersion;
+
+	@JsonProperty("CacheStats")
+	private Map<String, Map<String, Object>> cacheStats;
+
+}
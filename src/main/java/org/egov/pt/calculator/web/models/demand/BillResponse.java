@@ -1,9 +1,11 @@
 package org.egov.pt.calculator.web.models.demand;
 
 import java.util.List;
+import java.util.Map;
 
 import org.egov.common.contract.response.ResponseInfo;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.AllArgsConstructor;
@@ -27,4 +29,12 @@ public class BillResponse {
 	@JsonProperty("Bill")
 	private List<Bill> bill;
 
+	/**
+	 * consumer code -> reason, for the consumer codes whose bill could not be generated, keyed by
+	 * demand id instead when the bills are generated per demand for a date range
+	 */
+	@JsonProperty("Errors")
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	private Map<String, String> errors;
+
 }
@@ -0,0 +1,15 @@
+CREATE TABLE eg_pt_calculation_batch
+(
+
+  batchId character varying(64),
+  tenantId character varying(64),
+  locality character varying(64),
+  financialYear character varying(64),
+  processedOffset integer,
+  processed bigint,
+  failed bigint,
+  status character varying(64),
+  createdTime bigint,
+  lastModifiedTime bigint,
+  CONSTRAINT pk_eg_pt_calculation_batch PRIMARY KEY (batchId)
+);
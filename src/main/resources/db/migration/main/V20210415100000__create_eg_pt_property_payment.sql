@@ -0,0 +1,40 @@
+CREATE TABLE IF NOT EXISTS eg_pt_property_payment
+(
+
+  id character varying(64),
+  propertyId character varying(64),
+  financialYear character varying(64),
+  arrearHouseTax numeric,
+  arrearWaterTax numeric,
+  arrearSewerTax numeric,
+  houseTax numeric,
+  waterTax numeric,
+  sewerTax numeric,
+  surchareHouseTax numeric,
+  surchareWaterTax numeric,
+  surchareSewerTax numeric,
+  billGeneratedTotal numeric,
+  totalPaidAmount numeric,
+  lastPaymentDate character varying(64),
+  CONSTRAINT pk_eg_pt_property_payment PRIMARY KEY (id)
+);
+
+ALTER TABLE eg_pt_property_payment ADD COLUMN IF NOT EXISTS inputHash character varying(64);
+
+ALTER TABLE eg_pt_property_payment ADD COLUMN IF NOT EXISTS lastModifiedTime bigint;
+
+-- migrated data may hold several rows of a property and financial year, all but the one with the
+-- smallest id are moved aside to eg_pt_property_payment_duplicate so that the unique index can be built
+CREATE TABLE IF NOT EXISTS eg_pt_property_payment_duplicate (LIKE eg_pt_property_payment);
+
+INSERT INTO eg_pt_property_payment_duplicate
+  SELECT payment.* FROM eg_pt_property_payment payment
+  JOIN (SELECT id, ROW_NUMBER() OVER (PARTITION BY propertyId, financialYear ORDER BY id) AS rownumber
+        FROM eg_pt_property_payment WHERE propertyId IS NOT NULL AND financialYear IS NOT NULL) ranked
+    ON ranked.id = payment.id
+  WHERE ranked.rownumber > 1;
+
+DELETE FROM eg_pt_property_payment WHERE id IN (SELECT id FROM eg_pt_property_payment_duplicate);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_eg_pt_property_payment_propertyid_financialyear
+  ON eg_pt_property_payment (propertyId, financialYear);
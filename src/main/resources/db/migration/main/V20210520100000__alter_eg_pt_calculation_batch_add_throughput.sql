@@ -0,0 +1 @@
+ALTER TABLE eg_pt_calculation_batch ADD COLUMN IF NOT EXISTS throughput double precision;